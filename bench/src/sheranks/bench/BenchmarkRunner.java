@@ -0,0 +1,22 @@
+package sheranks.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ Runs the sheRanks benchmarks with the GC profiler attached, so every result comes with its allocation rate.
+ Pass a regex to run only some of them, e.g. "MatrixBenchmark.converge".
+ **/
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "sheranks.bench.MatrixBenchmark")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
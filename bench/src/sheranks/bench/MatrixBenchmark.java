@@ -0,0 +1,99 @@
+package sheranks.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * JMH benchmarks for the hot paths of Matrix: loading the graph from csv, one PageRank iteration, a full run
+ * to convergence, and producing the top recipes (sortPageRank + makePageRankOutFile).
+ * Each runs over the checked-in crawl and over synthetic power-law graphs of 10^4, 10^6 and 10^7 links.
+ * Run them through BenchmarkRunner so the GC profiler reports allocation rates too. The sheRanks classes are
+ * called through the handles in SheRanks (see there for why).
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class MatrixBenchmark {
+
+    @Param({"checked-in", "10000", "1000000", "10000000"})
+    public String graph;
+
+    private File inlinks, outlinks, details;
+    private File scratch; //where rankingOutput writes detailedPR.csv
+    private Object matrix;
+    private double[] ranks;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        File dir = graph.equals("checked-in") ? new File("src") : PowerLawGraph.csvDir(Integer.parseInt(graph));
+        inlinks = new File(dir, "inlinks.csv");
+        outlinks = new File(dir, "outlinks.csv");
+        details = new File(dir, "details.csv");
+
+        //keep the detailedPR.csv written by rankingOutput out of the project
+        scratch = new File(System.getProperty("java.io.tmpdir"), "sheRanks-bench/out");
+        scratch.mkdirs();
+
+        //sortPageRank prints the top recipes, which would drown the JMH output
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        matrix = load();
+        SheRanks.SET_OUTPUT_DIRECTORY.invokeExact(matrix, (Object) scratch);
+        ranks = (double[]) SheRanks.GET_RANKS.invokeExact(converge());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+        new File(scratch, "detailedPR.csv").delete();
+    }
+
+    @Benchmark
+    public Object load() throws Throwable {
+        return (Object) SheRanks.NEW_MATRIX.invokeExact(inlinks.getPath(), outlinks.getPath(), details.getPath());
+    }
+
+    @Benchmark
+    public Object oneIteration() throws Throwable {
+        Object config = (Object) SheRanks.SET_MAX_ITERATIONS.invokeExact((Object) SheRanks.NEW_CONFIG.invokeExact(), 1);
+        return run(config);
+    }
+
+    //time to converge with the default damping and tolerance
+    @Benchmark
+    public Object converge() throws Throwable {
+        return run((Object) SheRanks.NEW_CONFIG.invokeExact());
+    }
+
+    @Benchmark
+    public Object rankingOutput() throws Throwable {
+        return (Object) SheRanks.SORT_PAGE_RANK.invokeExact(matrix, ranks);
+    }
+
+    private Object run(Object config) throws Throwable {
+        Object graph = (Object) SheRanks.GET_GRAPH.invokeExact(matrix);
+        Object engine = (Object) SheRanks.NEW_ENGINE.invokeExact(graph, config);
+        return (Object) SheRanks.RUN.invokeExact(engine);
+    }
+}
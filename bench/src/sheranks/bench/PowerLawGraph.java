@@ -0,0 +1,62 @@
+package sheranks.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+/*
+ * PowerLawGraph writes synthetic crawl output (inlinks.csv, outlinks.csv, details.csv) for benchmarking.
+ * Links are added by preferential attachment: every new recipe links to LINKS_PER_RECIPE existing ones, picked
+ * in proportion to how many inlinks they already have (with some uniform picks mixed in). That gives the
+ * heavy-tailed inlink counts a real recipe site has. A fixed seed keeps the graphs the same between runs.
+ * */
+public class PowerLawGraph {
+    private static final int LINKS_PER_RECIPE = 5;
+    private static final double UNIFORM_PICK = 0.2;
+
+    //the directory holding the csv files for a graph with about edgeCount links, generated on first use
+    public static File csvDir(int edgeCount) throws IOException {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "sheRanks-bench/edges-" + edgeCount);
+        if (!new File(dir, "details.csv").exists()) {
+            dir.mkdirs();
+            generate(dir, edgeCount, 42);
+        }
+        return dir;
+    }
+
+    public static void generate(File dir, int edgeCount, long seed) throws IOException {
+        int recipes = Math.max(LINKS_PER_RECIPE + 1, edgeCount / LINKS_PER_RECIPE);
+        Random random = new Random(seed);
+        int[] targets = new int[recipes * LINKS_PER_RECIPE]; //every link target so far, sampled for attachment
+        int targetCount = 0;
+
+        try (BufferedWriter in = new BufferedWriter(new FileWriter(new File(dir, "inlinks.csv")));
+             BufferedWriter out = new BufferedWriter(new FileWriter(new File(dir, "outlinks.csv")));
+             BufferedWriter details = new BufferedWriter(new FileWriter(new File(dir, "details.csv")))) {
+            in.write("Recipe URL,Inlink URL\n");
+            out.write("Recipe URL,Outlink URL\n");
+            details.write("Recipe Title,Recipe URL,\"Would Make Again\" %,Tips Count\n");
+
+            for (int r = 0; r < recipes; r++) {
+                details.write("Recipe " + r + "," + url(r) + "," + (50 + random.nextInt(51)) + "," + random.nextInt(200) + "\n");
+                if (r <= LINKS_PER_RECIPE) {
+                    continue; //the first few recipes only receive links
+                }
+                for (int l = 0; l < LINKS_PER_RECIPE; l++) {
+                    int target = targetCount == 0 || random.nextDouble() < UNIFORM_PICK
+                            ? random.nextInt(r)
+                            : targets[random.nextInt(targetCount)];
+                    targets[targetCount++] = target;
+                    in.write(url(target) + "," + url(r) + "\n");
+                    out.write(url(r) + "," + url(target) + "\n");
+                }
+            }
+        }
+    }
+
+    private static String url(int recipe) {
+        return "https://tasty.co/recipe/r" + recipe;
+    }
+}
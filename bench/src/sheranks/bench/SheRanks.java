@@ -0,0 +1,64 @@
+package sheranks.bench;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/*
+ * JMH won't generate code for benchmarks in the default package, and Java can't import classes from the
+ * default package into a named one. So the benchmarks reach Matrix and the PageRank classes through these
+ * method handles. They are static final, so the JIT inlines them like direct calls and they don't skew timings.
+ * */
+final class SheRanks {
+    static final MethodHandle NEW_MATRIX; //(String inlinks, String outlinks, String details) -> Matrix
+    static final MethodHandle GET_GRAPH; //(Matrix) -> LinkGraph
+    static final MethodHandle SET_OUTPUT_DIRECTORY; //(Matrix, File) -> void
+    static final MethodHandle SORT_PAGE_RANK; //(Matrix, double[]) -> result of sortPageRank
+    static final MethodHandle NEW_CONFIG; //() -> PageRankConfig
+    static final MethodHandle SET_MAX_ITERATIONS; //(PageRankConfig, int) -> PageRankConfig
+    static final MethodHandle NEW_ENGINE; //(LinkGraph, PageRankConfig) -> PageRankEngine
+    static final MethodHandle RUN; //(PageRankEngine) -> PageRankResult
+    static final MethodHandle GET_RANKS; //(PageRankResult) -> double[]
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> matrix = Class.forName("Matrix");
+            Class<?> graph = Class.forName("LinkGraph");
+            Class<?> config = Class.forName("PageRankConfig");
+            Class<?> engine = Class.forName("PageRankEngine");
+            Class<?> result = Class.forName("PageRankResult");
+
+            NEW_MATRIX = erase(lookup.findConstructor(matrix, MethodType.methodType(void.class, String.class, String.class, String.class)));
+            GET_GRAPH = erase(lookup.findVirtual(matrix, "getGraph", MethodType.methodType(graph)));
+            SET_OUTPUT_DIRECTORY = erase(lookup.findVirtual(matrix, "setOutputDirectory", MethodType.methodType(void.class, File.class)));
+            SORT_PAGE_RANK = erase(lookup.unreflect(matrix.getMethod("sortPageRank", double[].class)));
+            NEW_CONFIG = erase(lookup.findConstructor(config, MethodType.methodType(void.class)));
+            SET_MAX_ITERATIONS = erase(lookup.findVirtual(config, "setMaxIterations", MethodType.methodType(config, int.class)));
+            NEW_ENGINE = erase(lookup.findConstructor(engine, MethodType.methodType(void.class, graph, config)));
+            RUN = erase(lookup.findVirtual(engine, "run", MethodType.methodType(result)));
+            GET_RANKS = erase(lookup.findVirtual(result, "getRanks", MethodType.methodType(double[].class)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private SheRanks() {
+    }
+
+    //swap the sheRanks types in a handle's signature for Object so it can be called with invokeExact
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (!type.parameterType(i).isPrimitive() && !type.parameterType(i).isArray()
+                    && type.parameterType(i) != String.class) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (!type.returnType().isPrimitive() && !type.returnType().isArray()) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+}
@@ -0,0 +1,306 @@
+import java.util.Arrays;
+
+/*
+ * AcceleratedPageRankEngine holds the solvers that need fewer passes over the graph than plain (Jacobi) power
+ * iteration, picked with PageRankConfig.setSolver:
+ *
+ *   GAUSS_SEIDEL - ranks are updated in place, so recipes later in a sweep already pull the new ranks of the
+ *                  ones before them. The dangling rank is kept up to date during the sweep as well.
+ *   AITKEN       - power iteration, and every EXTRAPOLATION_PERIOD iterations each rank is moved to the
+ *                  Aitken delta^2 estimate of its limit from the last three iterates.
+ *   QUADRATIC    - the same, with quadratic extrapolation (Kamvar et al.), which fits the last four iterates
+ *                  to the first two eigenvectors instead of treating every rank on its own.
+ *   ADAPTIVE     - power iteration that stops recomputing recipes whose rank has settled (adaptive PageRank);
+ *                  frozen recipes keep passing their rank along, but their inlinks aren't summed any more.
+ *                  A rank can look settled while the ones feeding it still move, so once the active recipes
+ *                  converge everything is thawed for a full pass, and only that pass can end the run. If the
+ *                  full pass shows the frozen recipes weren't done, the freeze threshold is tightened.
+ *
+ * All of them stop on the same L1 change and give ranks that sum to 1, with the same teleport and dangling
+ * handling as PageRankEngine. They run on one thread.
+ * */
+public class AcceleratedPageRankEngine {
+    private static final int EXTRAPOLATION_PERIOD = 10; //power iterations between extrapolations
+    private static final double FREEZE_FRACTION = 0.1; //a recipe freezes once its change is below this share of tolerance / n
+
+    private final LinkGraph graph;
+    private final PageRankConfig config;
+    private final int[] inOffsets, inSources, outDegrees;
+
+    public AcceleratedPageRankEngine(LinkGraph graph, PageRankConfig config) {
+        this.graph = graph;
+        this.config = config;
+        this.inOffsets = graph.getInOffsets();
+        this.inSources = graph.getInSources();
+        int n = graph.getNodeCount();
+        this.outDegrees = new int[n];
+        for (int i = 0; i < n; i++) {
+            outDegrees[i] = graph.outDegree(i);
+        }
+    }
+
+    public PageRankResult run(double[] initialRanks, double[] teleport) {
+        switch (config.getSolver()) {
+            case GAUSS_SEIDEL:
+                return gaussSeidel(initialRanks, teleport);
+            case AITKEN:
+            case QUADRATIC:
+                return extrapolated(initialRanks, teleport, config.getSolver());
+            case ADAPTIVE:
+                return adaptive(initialRanks, teleport);
+            default:
+                throw new IllegalArgumentException("Not an accelerated solver: " + config.getSolver());
+        }
+    }
+
+    private PageRankResult gaussSeidel(double[] initialRanks, double[] teleport) {
+        final int n = graph.getNodeCount();
+        final double damping = config.getDamping();
+        double[] ranks = initialRanks.clone();
+        double[] share = new double[n];
+
+        int iteration = 0;
+        double delta = Double.MAX_VALUE;
+        while (iteration < config.getMaxIterations() && delta >= config.getTolerance()) {
+            iteration++;
+            double dangling = 0;
+            for (int i = 0; i < n; i++) {
+                if (outDegrees[i] == 0) {
+                    dangling += ranks[i];
+                } else {
+                    share[i] = ranks[i] / outDegrees[i];
+                }
+            }
+
+            delta = 0;
+            for (int j = 0; j < n; j++) {
+                double sum = 0;
+                for (int k = inOffsets[j]; k < inOffsets[j + 1]; k++) {
+                    sum += share[inSources[k]];
+                }
+                double jumpMass = (1 - damping) + damping * dangling;
+                double rank = jumpMass * teleportWeight(teleport, j, n) + damping * sum;
+                delta += Math.abs(rank - ranks[j]);
+                //later recipes in this sweep see the new rank right away
+                if (outDegrees[j] == 0) {
+                    dangling += rank - ranks[j];
+                } else {
+                    share[j] = rank / outDegrees[j];
+                }
+                ranks[j] = rank;
+            }
+            normalize(ranks);
+            if (config.isVerbose()) {
+                System.out.println("Gauss-Seidel sweep: " + iteration + " --> L1 change = " + delta);
+            }
+        }
+        return new PageRankResult(ranks, iteration, delta, delta < config.getTolerance());
+    }
+
+    private PageRankResult extrapolated(double[] initialRanks, double[] teleport, PageRankConfig.Solver solver) {
+        final int n = graph.getNodeCount();
+        //the last four iterates, history[0] the newest
+        double[][] history = new double[4][];
+        history[0] = initialRanks.clone();
+        for (int h = 1; h < history.length; h++) {
+            history[h] = new double[n];
+        }
+        double[] share = new double[n];
+        int needed = solver == PageRankConfig.Solver.AITKEN ? 3 : 4; //iterates an extrapolation uses
+
+        int iteration = 0;
+        int sinceExtrapolation = 0;
+        double delta = Double.MAX_VALUE;
+        while (iteration < config.getMaxIterations() && delta >= config.getTolerance()) {
+            iteration++;
+            sinceExtrapolation++;
+            //shift the history and write the next iterate over the oldest one
+            double[] oldest = history[history.length - 1];
+            System.arraycopy(history, 0, history, 1, history.length - 1);
+            history[0] = oldest;
+            delta = powerStep(history[1], history[0], share, teleport);
+
+            if (sinceExtrapolation >= EXTRAPOLATION_PERIOD && iteration >= needed && delta >= config.getTolerance()) {
+                boolean moved = solver == PageRankConfig.Solver.AITKEN
+                        ? aitken(history[0], history[1], history[2])
+                        : quadratic(history[0], history[1], history[2], history[3]);
+                if (moved) {
+                    normalize(history[0]);
+                    sinceExtrapolation = 0;
+                }
+            }
+            if (config.isVerbose()) {
+                System.out.println(solver + " iteration: " + iteration + " --> L1 change = " + delta
+                        + (sinceExtrapolation == 0 ? " (extrapolated)" : ""));
+            }
+        }
+        return new PageRankResult(history[0], iteration, delta, delta < config.getTolerance());
+    }
+
+    //Aitken delta^2 on every rank from x2 -> x1 -> x0, written into x0; false if nothing could be extrapolated
+    private static boolean aitken(double[] x0, double[] x1, double[] x2) {
+        boolean moved = false;
+        for (int i = 0; i < x0.length; i++) {
+            double d1 = x0[i] - x1[i];
+            double d2 = x0[i] - 2 * x1[i] + x2[i];
+            if (Math.abs(d2) > 1e-300) {
+                double limit = x0[i] - d1 * d1 / d2;
+                //only take the estimate when it stays positive, otherwise keep the iterate
+                if (limit > 0) {
+                    x0[i] = limit;
+                    moved = true;
+                }
+            }
+        }
+        return moved;
+    }
+
+    /*
+     * Quadratic extrapolation from x3 -> x2 -> x1 -> x0 (oldest to newest), written into x0. With
+     * y1 = x2 - x3, y2 = x1 - x3, y3 = x0 - x3 it solves [y1 y2] g = -y3 by least squares, then combines
+     * x2, x1 and x0 with weights b0 = g1 + g2 + 1, b1 = g2 + 1, b2 = 1 (scaled to sum 1 by normalize).
+     * */
+    private static boolean quadratic(double[] x0, double[] x1, double[] x2, double[] x3) {
+        double a11 = 0, a12 = 0, a22 = 0, r1 = 0, r2 = 0; //normal equations of the least squares fit
+        for (int i = 0; i < x0.length; i++) {
+            double y1 = x2[i] - x3[i];
+            double y2 = x1[i] - x3[i];
+            double y3 = x0[i] - x3[i];
+            a11 += y1 * y1;
+            a12 += y1 * y2;
+            a22 += y2 * y2;
+            r1 -= y1 * y3;
+            r2 -= y2 * y3;
+        }
+        double det = a11 * a22 - a12 * a12;
+        if (Math.abs(det) <= 1e-12 * a11 * a22 || det == 0) {
+            return false; //the iterates are (nearly) collinear, nothing to fit
+        }
+        double g1 = (r1 * a22 - r2 * a12) / det;
+        double g2 = (a11 * r2 - a12 * r1) / det;
+        double b0 = g1 + g2 + 1, b1 = g2 + 1;
+        for (int i = 0; i < x0.length; i++) {
+            x0[i] = Math.max(0, b0 * x2[i] + b1 * x1[i] + x0[i]);
+        }
+        return true;
+    }
+
+    private PageRankResult adaptive(double[] initialRanks, double[] teleport) {
+        final int n = graph.getNodeCount();
+        final double damping = config.getDamping();
+        double freezeBelow = FREEZE_FRACTION * config.getTolerance() / Math.max(1, n);
+        double[] ranks = initialRanks.clone();
+        double[] next = initialRanks.clone(); //frozen recipes keep the same value in both buffers
+        double[] share = new double[n];
+        int[] active = new int[n]; //recipes still being recomputed
+        int activeCount = 0;
+        boolean fullPass = true; //every recipe is active this iteration
+
+        int iteration = 0;
+        double delta = Double.MAX_VALUE;
+        boolean lastWasFull = false; //the iteration that produced delta recomputed every recipe
+        while (iteration < config.getMaxIterations()) {
+            iteration++;
+            lastWasFull = fullPass;
+            if (fullPass) {
+                for (int i = 0; i < n; i++) {
+                    active[i] = i;
+                }
+                activeCount = n;
+            }
+            double linked = 0; //rank passed along links
+            for (int i = 0; i < n; i++) {
+                if (outDegrees[i] != 0) {
+                    share[i] = ranks[i] / outDegrees[i];
+                    linked += ranks[i];
+                }
+            }
+            //frozen recipes let the total drift from 1, and that error only shrinks by damping each iteration,
+            //so the jump mass tops the total back up to 1 instead of being (1 - damping) + damping * dangling
+            final double jumpMass = 1 - damping * linked;
+
+            delta = 0;
+            int stillActive = 0;
+            for (int a = 0; a < activeCount; a++) {
+                int j = active[a];
+                double sum = 0;
+                for (int k = inOffsets[j]; k < inOffsets[j + 1]; k++) {
+                    sum += share[inSources[k]];
+                }
+                double rank = jumpMass * teleportWeight(teleport, j, n) + damping * sum;
+                double change = Math.abs(rank - ranks[j]);
+                delta += change;
+                next[j] = rank;
+                if (change < freezeBelow && iteration > 1) {
+                    ranks[j] = rank; //frozen: both buffers hold the final rank
+                } else {
+                    active[stillActive++] = j;
+                }
+            }
+            activeCount = stillActive;
+
+            double[] swap = ranks;
+            ranks = next;
+            next = swap;
+
+            if (config.isVerbose()) {
+                System.out.println("Adaptive iteration: " + iteration + " --> L1 change = " + delta + ", "
+                        + activeCount + " of " + n + " recipes still active");
+            }
+            if (delta < config.getTolerance()) {
+                if (lastWasFull) {
+                    break;
+                }
+                fullPass = true; //check the frozen recipes too before stopping
+            } else {
+                if (lastWasFull && iteration > 1) {
+                    freezeBelow /= 10; //recipes were frozen too early, be stricter from now on
+                }
+                fullPass = false;
+            }
+        }
+        normalize(ranks);
+        return new PageRankResult(ranks, iteration, delta, delta < config.getTolerance() && lastWasFull);
+    }
+
+    //one Jacobi step from ranks into next, returns the L1 change
+    private double powerStep(double[] ranks, double[] next, double[] share, double[] teleport) {
+        final int n = ranks.length;
+        final double damping = config.getDamping();
+        double dangling = 0;
+        for (int i = 0; i < n; i++) {
+            if (outDegrees[i] == 0) {
+                dangling += ranks[i];
+                share[i] = 0;
+            } else {
+                share[i] = ranks[i] / outDegrees[i];
+            }
+        }
+        final double jumpMass = (1 - damping) + damping * dangling;
+
+        double delta = 0;
+        for (int j = 0; j < n; j++) {
+            double sum = 0;
+            for (int k = inOffsets[j]; k < inOffsets[j + 1]; k++) {
+                sum += share[inSources[k]];
+            }
+            next[j] = jumpMass * teleportWeight(teleport, j, n) + damping * sum;
+            delta += Math.abs(next[j] - ranks[j]);
+        }
+        return delta;
+    }
+
+    private static double teleportWeight(double[] teleport, int node, int n) {
+        return teleport == null ? 1 / (double) n : teleport[node];
+    }
+
+    //scale to sum to 1 in place
+    private static void normalize(double[] ranks) {
+        double sum = Arrays.stream(ranks).sum();
+        if (sum > 0) {
+            for (int i = 0; i < ranks.length; i++) {
+                ranks[i] /= sum;
+            }
+        }
+    }
+}
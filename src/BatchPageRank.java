@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/*
+ * BatchPageRank runs PageRank for many teleport vectors at once, e.g. one per topic. The ranks of all vectors
+ * are stored interleaved (ranks[node * m + v]), so every iteration walks the adjacency arrays once and does
+ * the work for all m vectors while each inlink row is in cache, instead of m separate passes over the graph.
+ * The batch stops when every vector is under the tolerance (or at the iteration cap).
+ * */
+public class BatchPageRank {
+    private final LinkGraph graph;
+    private final PageRankConfig config;
+
+    public BatchPageRank(LinkGraph graph, PageRankConfig config) {
+        this.graph = graph;
+        this.config = config;
+    }
+
+    //one result per teleport vector, in the same order
+    public PageRankResult[] run(double[][] teleportVectors) {
+        final int n = graph.getNodeCount();
+        final int m = teleportVectors.length;
+        final int[] inOffsets = graph.getInOffsets();
+        final int[] inSources = graph.getInSources();
+        final int[] outOffsets = graph.getOutOffsets();
+        final double damping = config.getDamping();
+
+        //interleave the teleport vectors and start every vector from its own teleport vector
+        double[] teleport = new double[n * m];
+        for (int v = 0; v < m; v++) {
+            if (teleportVectors[v].length != n) {
+                throw new IllegalArgumentException("Teleport vector " + v + " has " + teleportVectors[v].length
+                        + " entries, expected " + n);
+            }
+            for (int i = 0; i < n; i++) {
+                teleport[i * m + v] = teleportVectors[v][i];
+            }
+        }
+        double[] ranks = teleport.clone();
+        double[] next = new double[n * m];
+        double[] share = new double[n * m];
+        double[] dangling = new double[m];
+        double[] jumpMass = new double[m];
+        double[] sum = new double[m];
+        double[] delta = new double[m];
+
+        int iteration = 0;
+        double worst = Double.MAX_VALUE;
+        while (iteration < config.getMaxIterations() && worst >= config.getTolerance()) {
+            iteration++;
+
+            Arrays.fill(dangling, 0);
+            for (int i = 0; i < n; i++) {
+                int outDegree = outOffsets[i + 1] - outOffsets[i];
+                int row = i * m;
+                for (int v = 0; v < m; v++) {
+                    if (outDegree == 0) {
+                        dangling[v] += ranks[row + v];
+                        share[row + v] = 0;
+                    } else {
+                        share[row + v] = ranks[row + v] / outDegree;
+                    }
+                }
+            }
+            for (int v = 0; v < m; v++) {
+                jumpMass[v] = (1 - damping) + damping * dangling[v];
+            }
+
+            //one pass over the inlinks updates every vector
+            Arrays.fill(delta, 0);
+            for (int j = 0; j < n; j++) {
+                Arrays.fill(sum, 0);
+                for (int k = inOffsets[j]; k < inOffsets[j + 1]; k++) {
+                    int from = inSources[k] * m;
+                    for (int v = 0; v < m; v++) {
+                        sum[v] += share[from + v];
+                    }
+                }
+                int row = j * m;
+                for (int v = 0; v < m; v++) {
+                    next[row + v] = jumpMass[v] * teleport[row + v] + damping * sum[v];
+                    delta[v] += Math.abs(next[row + v] - ranks[row + v]);
+                }
+            }
+
+            double[] swap = ranks;
+            ranks = next;
+            next = swap;
+
+            worst = 0;
+            for (int v = 0; v < m; v++) {
+                worst = Math.max(worst, delta[v]);
+            }
+            if (config.isVerbose()) {
+                System.out.println("Iteration: " + iteration + " --> largest L1 change = " + worst);
+            }
+        }
+
+        //split the interleaved ranks back into one vector per teleport vector
+        PageRankResult[] results = new PageRankResult[m];
+        for (int v = 0; v < m; v++) {
+            double[] vector = new double[n];
+            for (int i = 0; i < n; i++) {
+                vector[i] = ranks[i * m + v];
+            }
+            results[v] = new PageRankResult(vector, iteration, delta[v], delta[v] < config.getTolerance());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,227 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * BinaryGraphFile reads and writes a LinkGraph in a compact binary format so big crawls don't have to be
+ * re-parsed from csv on every run. Everything is big-endian:
+ *
+ *   header:     int magic "SHRG", int version, int nodeCount, int edgeCount, int urlBytes
+ *   dictionary: int[nodeCount+1] byte offsets into the url section, then urlBytes of UTF-8 url text
+ *   edges:      int[nodeCount+1] outOffsets, int[edgeCount] outTargets,
+ *               int[nodeCount+1] inOffsets,  int[edgeCount] inSources
+ *
+ * Reading maps the file with a FileChannel and bulk copies the edge sections straight into the CSR arrays,
+ * so loading allocates nothing per edge (only one String per url).
+ *
+ * Convert the crawler's csv files with: java BinaryGraphFile inlinks.csv outlinks.csv graph.bin
+ * */
+public class BinaryGraphFile {
+    private static final int MAGIC = 0x53485247; //"SHRG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.out.println("Usage: java BinaryGraphFile <inlinks.csv> <outlinks.csv> <graph.bin>");
+            return;
+        }
+        LinkGraph graph = LinkGraph.fromCsv(new File(args[0]), new File(args[1]));
+        write(graph, new File(args[2]));
+        System.out.println("Wrote " + graph.getNodeCount() + " recipes and " + graph.getEdgeCount() + " links to " + args[2]);
+    }
+
+    public static void write(LinkGraph graph, File file) throws IOException {
+        int n = graph.getNodeCount();
+        int[] urlOffsets = new int[n + 1];
+        byte[][] urls = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            urls[i] = graph.getUrl(i).getBytes(StandardCharsets.UTF_8);
+            urlOffsets[i + 1] = urlOffsets[i] + urls[i].length;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(graph.getEdgeCount()).putInt(urlOffsets[n]);
+            header.flip();
+            writeFully(channel, header);
+
+            writeInts(channel, urlOffsets);
+            ByteBuffer text = ByteBuffer.allocate(64 * 1024);
+            for (byte[] url : urls) {
+                if (text.remaining() < url.length) {
+                    text.flip();
+                    writeFully(channel, text);
+                    text.clear();
+                }
+                if (url.length > text.capacity()) {
+                    writeFully(channel, ByteBuffer.wrap(url));
+                } else {
+                    text.put(url);
+                }
+            }
+            text.flip();
+            writeFully(channel, text);
+
+            writeInts(channel, graph.getOutOffsets());
+            writeInts(channel, graph.getOutTargets());
+            writeInts(channel, graph.getInOffsets());
+            writeInts(channel, graph.getInSources());
+        }
+    }
+
+    public static LinkGraph read(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            Layout layout = readLayout(channel, file);
+            int n = layout.nodeCount;
+            int edges = layout.edgeCount;
+            int urlBytes = layout.urlBytes;
+            long position = HEADER_BYTES;
+
+            int[] urlOffsets = readInts(channel, position, n + 1);
+            position += (long) (n + 1) * Integer.BYTES;
+            MappedByteBuffer text = channel.map(FileChannel.MapMode.READ_ONLY, position, urlBytes);
+            position += urlBytes;
+            UrlDictionary dictionary = new UrlDictionary();
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < n; i++) {
+                int length = urlOffsets[i + 1] - urlOffsets[i];
+                if (length > scratch.length) {
+                    scratch = new byte[length];
+                }
+                text.get(scratch, 0, length);
+                dictionary.intern(new String(scratch, 0, length, StandardCharsets.UTF_8));
+            }
+
+            int[] outOffsets = readInts(channel, position, n + 1);
+            position += (long) (n + 1) * Integer.BYTES;
+            int[] outTargets = readInts(channel, position, edges);
+            position += (long) edges * Integer.BYTES;
+            int[] inOffsets = readInts(channel, position, n + 1);
+            position += (long) (n + 1) * Integer.BYTES;
+            int[] inSources = readInts(channel, position, edges);
+
+            return new LinkGraph(dictionary, inOffsets, inSources, outOffsets, outTargets);
+        }
+    }
+
+    //where each section of file starts, without reading any of them
+    public static Layout readLayout(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            return readLayout(channel, file);
+        }
+    }
+
+    private static Layout readLayout(FileChannel channel, File file) throws IOException {
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        if (header.getInt() != MAGIC) {
+            throw new IOException(file.getPath() + " is not a sheRanks graph file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported graph file version " + version + " in " + file.getPath());
+        }
+        return new Layout(header.getInt(), header.getInt(), header.getInt());
+    }
+
+    //the urls of just the given nodes, read from the mapped dictionary section
+    public static String[] readUrls(File file, int[] nodes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            Layout layout = readLayout(channel, file);
+            IntBuffer urlOffsets = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+                    (long) (layout.nodeCount + 1) * Integer.BYTES).asIntBuffer();
+            MappedByteBuffer text = channel.map(FileChannel.MapMode.READ_ONLY, layout.getUrlsPosition(), layout.urlBytes);
+            String[] urls = new String[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                int start = urlOffsets.get(nodes[i]);
+                byte[] bytes = new byte[urlOffsets.get(nodes[i] + 1) - start];
+                text.position(start);
+                text.get(bytes);
+                urls[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return urls;
+        }
+    }
+
+    //map count ints starting at position and copy them out in one bulk get
+    private static int[] readInts(FileChannel channel, long position, int count) throws IOException {
+        int[] values = new int[count];
+        IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Integer.BYTES).asIntBuffer();
+        ints.get(values);
+        return values;
+    }
+
+    private static void writeInts(FileChannel channel, int[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        IntBuffer ints = buffer.asIntBuffer();
+        int written = 0;
+        while (written < values.length) {
+            int count = Math.min(ints.capacity(), values.length - written);
+            ints.clear();
+            ints.put(values, written, count);
+            buffer.clear().limit(count * Integer.BYTES);
+            writeFully(channel, buffer);
+            written += count;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /*
+     * Counts from the header and the file position of every section, for readers that stream the file
+     * instead of loading it (see OutOfCorePageRank).
+     * */
+    public static class Layout {
+        private final int nodeCount;
+        private final int edgeCount;
+        private final int urlBytes;
+
+        Layout(int nodeCount, int edgeCount, int urlBytes) {
+            this.nodeCount = nodeCount;
+            this.edgeCount = edgeCount;
+            this.urlBytes = urlBytes;
+        }
+
+        public int getNodeCount() {
+            return nodeCount;
+        }
+
+        public int getEdgeCount() {
+            return edgeCount;
+        }
+
+        long getUrlsPosition() {
+            return HEADER_BYTES + (long) (nodeCount + 1) * Integer.BYTES;
+        }
+
+        public long getOutOffsetsPosition() {
+            return getUrlsPosition() + urlBytes;
+        }
+
+        public long getOutTargetsPosition() {
+            return getOutOffsetsPosition() + (long) (nodeCount + 1) * Integer.BYTES;
+        }
+
+        public long getInOffsetsPosition() {
+            return getOutTargetsPosition() + (long) edgeCount * Integer.BYTES;
+        }
+
+        public long getInSourcesPosition() {
+            return getInOffsetsPosition() + (long) (nodeCount + 1) * Integer.BYTES;
+        }
+    }
+}
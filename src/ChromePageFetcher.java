@@ -0,0 +1,153 @@
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+import java.util.List;
+
+/**
+ * Fetcher that drives a headless Chrome browser, so recipe pages get their dynamic content rendered.
+ * Browser sessions are leased from a shared WebDriverPool for one page at a time.
+ * On recipe pages it polls for the dynamic content (tips score, tips count, related recipes) and stops as
+ * soon as all of it is there, or when the host's adaptive RenderTimeouts run out. A page that only partly
+ * rendered is still returned, so its links aren't lost. If the browser crashes on a page, the session is
+ * replaced and the page is tried once more on another session before the error is passed on.
+ **/
+public class ChromePageFetcher implements PageFetcher {
+    private static final String[] RENDER_TARGETS = {"tips-score-heading", "tips-count-heading", "related-recipes"};
+    private static final long POLL_MILLIS = 50;
+    private static final int CRASH_ATTEMPTS = 2; // a page that crashes two browsers is probably what crashes them
+    private static final RenderTimeouts SHARED_TIMEOUTS = new RenderTimeouts(1000, 5000); // learned across all fetchers
+
+    private WebDriverPool pool; // shared, warmed-up browser sessions
+    private RenderTimeouts timeouts; // how long to wait for each host's dynamic content
+    private CrawlMetrics metrics; // null when nobody is collecting stage timings
+
+    public ChromePageFetcher(WebDriverPool pool) {
+        this(pool, SHARED_TIMEOUTS);
+    }
+
+    public ChromePageFetcher(WebDriverPool pool, RenderTimeouts timeouts) {
+        this.pool = pool;
+        this.timeouts = timeouts;
+    }
+
+    @Override
+    public Document fetch(String url) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return fetchOnce(url);
+            } catch (TimeoutException | NoSuchElementException e) {
+                throw e;
+            } catch (WebDriverException e) {
+                if (attempt >= CRASH_ATTEMPTS) {
+                    throw e;
+                }
+                System.out.println("Browser crashed on " + url + ", trying again on another session");
+            }
+        }
+    }
+
+    // load url on one leased session; a WebDriverException other than a missing element retires the session
+    private Document fetchOnce(String url) {
+        WebDriverPool.Session session;
+        try {
+            session = pool.lease();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a browser session", e);
+        }
+
+        boolean crashed = false;
+        try {
+            // use automated chrome to open up the url and then grab the document
+            WebDriver driver = session.getDriver();
+            long start = System.nanoTime();
+            driver.get(url);
+            start = record(CrawlMetrics.Stage.PAGE_LOAD, start);
+            if (url.contains("/recipe")) {
+                loadRecipe(driver, url);
+                start = record(CrawlMetrics.Stage.RENDER, start);
+            }
+            Document d = Jsoup.parse(driver.getPageSource(), url);
+            record(CrawlMetrics.Stage.PARSE, start);
+            return d;
+        } catch (TimeoutException | NoSuchElementException e) {
+            throw e; // the page is missing content, the browser itself is fine
+        } catch (WebDriverException e) {
+            crashed = true;
+            throw e;
+        } finally {
+            pool.release(session, crashed);
+        }
+    }
+
+    // record the stage if metrics are on, and return the time it ended as the start of the next stage
+    private long record(CrawlMetrics.Stage stage, long start) {
+        if (metrics != null) {
+            metrics.record(stage, start);
+        }
+        return System.nanoTime();
+    }
+
+    private void loadRecipe(WebDriver driver, String url) {
+        // generate dynamic content by scrolling to bottom
+        List<WebElement> cta = driver.findElements(By.className("recipe-submit-cta"));
+        if (cta.isEmpty()) {
+            ((JavascriptExecutor) driver).executeScript("window.scrollTo(0, document.body.scrollHeight);");
+        } else {
+            ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView();", cta.get(0));
+        }
+
+        // poll until every target is on the page or the host's timeout runs out
+        long start = System.nanoTime();
+        long deadline = start + timeouts.timeoutMillis(url) * 1_000_000L;
+        boolean[] found = new boolean[RENDER_TARGETS.length];
+        int foundCount = 0;
+        long lastFound = start; // when the latest target showed up
+        while (true) {
+            for (int i = 0; i < RENDER_TARGETS.length; i++) {
+                if (!found[i] && !driver.findElements(By.className(RENDER_TARGETS[i])).isEmpty()) {
+                    found[i] = true;
+                    foundCount++;
+                    lastFound = System.nanoTime();
+                }
+            }
+            if (foundCount == RENDER_TARGETS.length) {
+                timeouts.rendered(url, (System.nanoTime() - start) / 1_000_000L);
+                return;
+            }
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        // nothing rendered: the host is slower than we thought. Some targets showing up means the page rendered
+        // by the time the last one appeared and the rest may not be on it, so that wait is the sample
+        if (foundCount == 0) {
+            timeouts.timedOut(url);
+        } else {
+            timeouts.rendered(url, (lastFound - start) / 1_000_000L);
+        }
+    }
+
+    @Override
+    public void setMetrics(CrawlMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void close() {
+        // sessions belong to the pool, which is closed by its owner
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Lock-free growable bitset over int ids, one bit per id instead of a set entry per URL. Bits live in
+ * fixed-size AtomicLongArray segments that are created on first use, so the set grows without copying and
+ * set/clear are a single compare-and-set on one word.
+ **/
+public class ConcurrentBitSet {
+    private static final int SEGMENT_WORD_BITS = 10; // 1024 words = 65536 bits per segment
+    private static final int SEGMENT_WORDS = 1 << SEGMENT_WORD_BITS;
+    private static final int SEGMENT_BITS = SEGMENT_WORDS * Long.SIZE;
+    private static final int MAX_SEGMENTS = (int) ((1L << 31) / SEGMENT_BITS);
+
+    private final AtomicReferenceArray<AtomicLongArray> segments = new AtomicReferenceArray<>(MAX_SEGMENTS);
+
+    // set bit id, returns true if it wasn't set before
+    public boolean set(int id) {
+        AtomicLongArray segment = segmentFor(id, true);
+        int word = (id >>> 6) & (SEGMENT_WORDS - 1);
+        long mask = 1L << id;
+        while (true) {
+            long bits = segment.get(word);
+            if ((bits & mask) != 0) {
+                return false;
+            }
+            if (segment.compareAndSet(word, bits, bits | mask)) {
+                return true;
+            }
+        }
+    }
+
+    // clear bit id, returns true if it was set
+    public boolean clear(int id) {
+        AtomicLongArray segment = segmentFor(id, false);
+        if (segment == null) {
+            return false;
+        }
+        int word = (id >>> 6) & (SEGMENT_WORDS - 1);
+        long mask = 1L << id;
+        while (true) {
+            long bits = segment.get(word);
+            if ((bits & mask) == 0) {
+                return false;
+            }
+            if (segment.compareAndSet(word, bits, bits & ~mask)) {
+                return true;
+            }
+        }
+    }
+
+    public boolean get(int id) {
+        AtomicLongArray segment = segmentFor(id, false);
+        return segment != null && (segment.get((id >>> 6) & (SEGMENT_WORDS - 1)) & (1L << id)) != 0;
+    }
+
+    // calls action with every set id in increasing order; bits changed meanwhile may or may not be seen
+    public void forEach(IntConsumer action) {
+        for (int s = 0; s < MAX_SEGMENTS; s++) {
+            AtomicLongArray segment = segments.get(s);
+            if (segment == null) {
+                continue;
+            }
+            for (int w = 0; w < SEGMENT_WORDS; w++) {
+                long bits = segment.get(w);
+                while (bits != 0) {
+                    int bit = Long.numberOfTrailingZeros(bits);
+                    action.accept(s * SEGMENT_BITS + w * Long.SIZE + bit);
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (int s = 0; s < MAX_SEGMENTS; s++) {
+            AtomicLongArray segment = segments.get(s);
+            if (segment != null) {
+                for (int w = 0; w < SEGMENT_WORDS; w++) {
+                    count += Long.bitCount(segment.get(w));
+                }
+            }
+        }
+        return count;
+    }
+
+    private AtomicLongArray segmentFor(int id, boolean create) {
+        if (id < 0) {
+            throw new IndexOutOfBoundsException("Negative id " + id);
+        }
+        int index = id / SEGMENT_BITS;
+        AtomicLongArray segment = segments.get(index);
+        if (segment == null && create) {
+            segments.compareAndSet(index, null, new AtomicLongArray(SEGMENT_WORDS));
+            segment = segments.get(index);
+        }
+        return segment;
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/*
+ * ConcurrentGraphBuilder lets crawler workers add links as they find them, appending edges between the
+ * crawl's UrlInterner ids to growable int arrays, and can hand out a LinkGraph snapshot at any time, even while
+ * the crawl is still running. Adding an edge is a hash probe and two array writes under one short lock, which
+ * is nothing next to fetching a page. A link that was already added is dropped: the hash table holds only the
+ * index of each edge in the arrays (open addressing, at most half full), so deduping costs 8 to 16 bytes per
+ * edge on top of the 8 the edge itself takes, and nothing is boxed.
+ * The snapshot renumbers the nodes that have edges into the graph's own dense ids.
+ * */
+public class ConcurrentGraphBuilder {
+    private final UrlInterner urls;
+    private int[] sources = new int[1024];
+    private int[] targets = new int[1024];
+    private int edgeCount;
+    private int[] slots = new int[2048]; //edge index + 1 per slot, 0 = empty
+    private int nodeCount; //distinct urls that are an end of some edge
+    private ConcurrentBitSet nodes = new ConcurrentBitSet();
+
+    public ConcurrentGraphBuilder(UrlInterner urls) {
+        this.urls = urls;
+    }
+
+    //the link fromId --> toId, both ids from urls; returns false if it was already added
+    public synchronized boolean addEdge(int fromId, int toId) {
+        int mask = slots.length - 1;
+        int slot = hash(fromId, toId) & mask;
+        for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int e = slots[slot] - 1;
+            if (sources[e] == fromId && targets[e] == toId) {
+                return false;
+            }
+        }
+        if (nodes.set(fromId)) {
+            nodeCount++;
+        }
+        if (nodes.set(toId)) {
+            nodeCount++;
+        }
+        if (edgeCount == sources.length) {
+            sources = Arrays.copyOf(sources, edgeCount * 2);
+            targets = Arrays.copyOf(targets, edgeCount * 2);
+        }
+        sources[edgeCount] = fromId;
+        targets[edgeCount] = toId;
+        edgeCount++;
+        slots[slot] = edgeCount;
+        if (edgeCount * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return true;
+    }
+
+    private void rehash(int size) {
+        slots = new int[size];
+        int mask = size - 1;
+        for (int e = 0; e < edgeCount; e++) {
+            int slot = hash(sources[e], targets[e]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = e + 1;
+        }
+    }
+
+    //Fibonacci hashing of the id pair, the high bits are the well-mixed ones
+    private static int hash(int fromId, int toId) {
+        return (int) ((((long) fromId << 32) | (toId & 0xffffffffL)) * 0x9E3779B97F4A7C15L >>> 32);
+    }
+
+    public synchronized int getNodeCount() {
+        return nodeCount;
+    }
+
+    public synchronized int getEdgeCount() {
+        return edgeCount;
+    }
+
+    //the links added so far as {from ids, to ids}, copies that later additions don't affect
+    public synchronized int[][] edges() {
+        return new int[][]{Arrays.copyOf(sources, edgeCount), Arrays.copyOf(targets, edgeCount)};
+    }
+
+    //CSR graph of every link added so far; later additions don't affect it
+    public LinkGraph snapshot() {
+        int[][] copy = edges();
+        int[] from = copy[0];
+        int[] to = copy[1];
+        int edges = from.length;
+
+        //renumbering and the CSR build run outside the lock, node ids in order of first appearance
+        UrlDictionary dictionary = new UrlDictionary();
+        GraphBuilder builder = new GraphBuilder();
+        int[] graphIds = new int[urls.size()];
+        Arrays.fill(graphIds, -1);
+        for (int e = 0; e < edges; e++) {
+            builder.addEdge(graphId(from[e], graphIds, dictionary), graphId(to[e], graphIds, dictionary));
+        }
+        return builder.build(dictionary);
+    }
+
+    private int graphId(int urlId, int[] graphIds, UrlDictionary dictionary) {
+        if (graphIds[urlId] < 0) {
+            graphIds[urlId] = dictionary.intern(urls.getUrl(urlId));
+        }
+        return graphIds[urlId];
+    }
+}
@@ -0,0 +1,176 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshot of a running crawl that is enough to pick it up again after the process dies: every URL seen,
+ * the URLs still to crawl (queued or in flight), the recipe inlinks found so far, and how long each output
+ * csv was when the snapshot was taken. On resume the csv files are cut back to those lengths, so rows
+ * written after the last checkpoint (possibly half a row after a kill -9) are dropped and then rewritten
+ * exactly once when their pages are crawled again.
+ *
+ * The file is gzipped and stores each URL once in a string table; pairs refer to it by index.
+ * It is written to a temp file and renamed over the old one, so a crash mid-write leaves the last good copy.
+ **/
+public class CrawlCheckpoint {
+    private static final int MAGIC = 0x53485243; // "SHRC"
+    private static final int VERSION = 1;
+
+    private final long detailsLength, inlinksLength, outlinksLength;
+    private final Collection<String> seen;
+    private final Collection<String> pending;
+    private final Collection<String[]> inlinks; // {recipe url, inlink url}
+
+    public CrawlCheckpoint(long detailsLength, long inlinksLength, long outlinksLength,
+                           Collection<String> seen, Collection<String> pending, Collection<String[]> inlinks) {
+        this.detailsLength = detailsLength;
+        this.inlinksLength = inlinksLength;
+        this.outlinksLength = outlinksLength;
+        this.seen = seen;
+        this.pending = pending;
+        this.inlinks = inlinks;
+    }
+
+    public void save(File file) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        for (String url : seen) {
+            idOf(url, ids, table);
+        }
+        for (String[] pair : inlinks) {
+            idOf(pair[0], ids, table);
+            idOf(pair[1], ids, table);
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp);
+             GZIPOutputStream gzip = new GZIPOutputStream(fos);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(detailsLength);
+            out.writeLong(inlinksLength);
+            out.writeLong(outlinksLength);
+            out.writeInt(table.size());
+            for (String url : table) {
+                out.writeUTF(url);
+            }
+            out.writeInt(seen.size());
+            for (String url : seen) {
+                out.writeInt(ids.get(url));
+            }
+            out.writeInt(pending.size());
+            for (String url : pending) {
+                out.writeInt(idOf(url, ids, table));
+            }
+            out.writeInt(inlinks.size());
+            for (String[] pair : inlinks) {
+                out.writeInt(ids.get(pair[0]));
+                out.writeInt(ids.get(pair[1]));
+            }
+            out.flush();
+            gzip.finish(); // the rest of the deflate output and the gzip trailer, which close() would write too late
+            fos.getFD().sync(); // make sure the whole file is on disk before the rename
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(file.getAbsoluteFile().getParentFile()); // and the rename itself
+    }
+
+    private static void syncDirectory(File dir) {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // some platforms (Windows) can't open a directory, the rename is as durable as they make it
+        }
+    }
+
+    private static int idOf(String url, Map<String, Integer> ids, List<String> table) {
+        Integer id = ids.get(url);
+        if (id == null) {
+            id = table.size();
+            ids.put(url, id);
+            table.add(url);
+        }
+        return id;
+    }
+
+    public static CrawlCheckpoint load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file.getPath() + " is not a sheRanks crawl checkpoint");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version + " in " + file.getPath());
+            }
+            long detailsLength = in.readLong();
+            long inlinksLength = in.readLong();
+            long outlinksLength = in.readLong();
+            String[] table = new String[in.readInt()];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = in.readUTF();
+            }
+            List<String> seen = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                seen.add(table[in.readInt()]);
+            }
+            List<String> pending = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                pending.add(table[in.readInt()]);
+            }
+            List<String[]> inlinks = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                inlinks.add(new String[]{table[in.readInt()], table[in.readInt()]});
+            }
+            return new CrawlCheckpoint(detailsLength, inlinksLength, outlinksLength, seen, pending, inlinks);
+        }
+    }
+
+    // cut the output files back to their lengths at checkpoint time; null files aren't being written
+    public void truncateOutputs(File details, File inlinks, File outlinks) throws IOException {
+        truncate(details, detailsLength);
+        truncate(inlinks, inlinksLength);
+        truncate(outlinks, outlinksLength);
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        if (file == null) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < length) {
+                throw new IOException(file.getPath() + " is shorter than at the last checkpoint");
+            }
+            raf.setLength(length);
+        }
+    }
+
+    public Collection<String> getSeen() {
+        return seen;
+    }
+
+    public Collection<String> getPending() {
+        return pending;
+    }
+
+    public Collection<String[]> getInlinks() {
+        return inlinks;
+    }
+}
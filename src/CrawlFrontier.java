@@ -0,0 +1,185 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Work queue shared by the crawler workers. A URL is queued only the first time it is offered, and the
+ * crawl is over once nothing is queued and no worker is still processing a page (which could add more).
+ * URLs handed out but not yet done are tracked so a checkpoint can put them back in the queue.
+ * URLs are held as ids from a UrlInterner: seen and in-flight are bitsets and the queue is an int ring
+ * buffer, so a URL costs a few bits of frontier state on top of the one string kept by the interner.
+ **/
+public class CrawlFrontier {
+    private final UrlInterner urls;
+    private final ConcurrentBitSet seen = new ConcurrentBitSet(); // every url ever queued
+    private final ConcurrentBitSet inFlight = new ConcurrentBitSet(); // taken by a worker, not done yet
+    private final AtomicInteger seenCount = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger(); // queued + being processed
+    private volatile boolean closed;
+
+    // queued ids, guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private int[] queue = new int[1024];
+    private int head;
+    private int queued;
+
+    public CrawlFrontier() {
+        this(new UrlInterner());
+    }
+
+    public CrawlFrontier(UrlInterner urls) {
+        this.urls = urls;
+    }
+
+    // queue url unless it has been seen before, returns true if it was added
+    public boolean offer(String url) {
+        return !closed && offer(urls.intern(url));
+    }
+
+    private boolean offer(int id) {
+        if (!seen.set(id)) {
+            return false;
+        }
+        seenCount.incrementAndGet();
+        pending.incrementAndGet();
+        enqueue(id);
+        return true;
+    }
+
+    private void enqueue(int id) {
+        lock.lock();
+        try {
+            if (queued == queue.length) {
+                int[] grown = new int[queue.length * 2];
+                for (int i = 0; i < queued; i++) {
+                    grown[i] = queue[(head + i) % queue.length];
+                }
+                queue = grown;
+                head = 0;
+            }
+            queue[(head + queued) % queue.length] = id;
+            queued++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // next queued id, or -1 if nothing shows up within 100ms
+    private int poll() throws InterruptedException {
+        lock.lock();
+        try {
+            long wait = TimeUnit.MILLISECONDS.toNanos(100);
+            while (queued == 0) {
+                if (wait <= 0) {
+                    return -1;
+                }
+                wait = notEmpty.awaitNanos(wait);
+            }
+            int id = queue[head];
+            head = (head + 1) % queue.length;
+            queued--;
+            return id;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // next url to crawl, or null once the crawl is finished; callers must call done() or requeue() for every url taken
+    public String next() throws InterruptedException {
+        while (!closed) {
+            int id = poll();
+            if (id >= 0) {
+                inFlight.set(id);
+                return urls.getUrl(id);
+            }
+            if (pending.get() == 0) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // mark a url returned by next() as fully processed
+    public void done(String url) {
+        inFlight.clear(urls.lookup(url));
+        pending.decrementAndGet();
+    }
+
+    // hand a url returned by next() back uncrawled, e.g. when its worker is stopped; it stays pending
+    public void requeue(String url) {
+        int id = urls.lookup(url);
+        inFlight.clear(id);
+        enqueue(id);
+    }
+
+    // put back the state saved by a checkpoint: everything seen, and the urls that still need crawling
+    public void restore(Collection<String> seenUrls, Collection<String> pendingUrls) {
+        for (String url : seenUrls) {
+            if (seen.set(urls.intern(url))) {
+                seenCount.incrementAndGet();
+            }
+        }
+        for (String url : pendingUrls) {
+            int id = urls.intern(url);
+            if (seen.set(id)) {
+                seenCount.incrementAndGet();
+            }
+            pending.incrementAndGet();
+            enqueue(id);
+        }
+    }
+
+    // urls that haven't been fully crawled yet: queued plus in flight
+    public List<String> pendingUrls() {
+        List<String> pendingUrls = new ArrayList<>();
+        inFlight.forEach(id -> pendingUrls.add(urls.getUrl(id)));
+        lock.lock();
+        try {
+            for (int i = 0; i < queued; i++) {
+                pendingUrls.add(urls.getUrl(queue[(head + i) % queue.length]));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return pendingUrls;
+    }
+
+    public List<String> seenUrls() {
+        List<String> seenUrls = new ArrayList<>(seenCount.get());
+        seen.forEach(id -> seenUrls.add(urls.getUrl(id)));
+        return seenUrls;
+    }
+
+    // stop handing out work, e.g. when the crawl is aborted
+    public void close() {
+        closed = true;
+    }
+
+    public boolean hasSeen(String url) {
+        int id = urls.lookup(url);
+        return id >= 0 && seen.get(id);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int seenCount() {
+        return seenCount.get();
+    }
+
+    public UrlInterner getUrls() {
+        return urls;
+    }
+}
@@ -0,0 +1,141 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for a running crawl: a latency histogram per stage of a page, pages crawled, and errors by
+ * exception type. Everything is lock-free (LatencyHistogram, LongAdder) so it can stay on for every crawl.
+ * The crawler prints report() every few seconds and saves toJson() when the crawl ends.
+ **/
+public class CrawlMetrics {
+
+    public enum Stage {
+        HOST_WAIT, // waiting on the per-host rate limit
+        FETCH, // the whole PageFetcher.fetch call
+        PAGE_LOAD, // driver.get in the browser
+        RENDER, // waiting for the recipe's dynamic content
+        PARSE, // Jsoup parsing the rendered page source
+        PROCESS_LINKS, // collecting outlinks, including inlink writes
+        CSV_WRITE // details and outlink rows
+    }
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final LongAdder pages = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final long startNanos = System.nanoTime();
+    private long lastReportNanos = startNanos; // guarded by report()
+    private long lastReportPages;
+
+    public CrawlMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    // record the time since startNanos (a System.nanoTime() value) against stage
+    public void record(Stage stage, long startNanos) {
+        stages.get(stage).recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public void pageDone() {
+        pages.increment();
+    }
+
+    public void error(Throwable e) {
+        errors.computeIfAbsent(e.getClass().getSimpleName(), k -> new LongAdder()).increment();
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return stages.get(stage);
+    }
+
+    public long getPages() {
+        return pages.sum();
+    }
+
+    public long getErrors(String exceptionType) {
+        LongAdder count = errors.get(exceptionType);
+        return count == null ? 0 : count.sum();
+    }
+
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    public double getPagesPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds == 0 ? 0 : getPages() / seconds;
+    }
+
+    // one line for the periodic reporter, with the page rate since the last report
+    public synchronized String report(int frontierSize) {
+        long now = System.nanoTime();
+        long pagesNow = getPages();
+        double recentRate = (pagesNow - lastReportPages) / ((now - lastReportNanos) / 1e9);
+        lastReportNanos = now;
+        lastReportPages = pagesNow;
+
+        StringBuilder line = new StringBuilder(String.format("[crawl] %.0fs pages=%d (%.2f/s now, %.2f/s overall) frontier=%d",
+                getElapsedSeconds(), pagesNow, recentRate, getPagesPerSecond(), frontierSize));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = stages.get(stage);
+            if (h.getCount() > 0) {
+                line.append(String.format(" %s p50=%.0fms p99=%.0fms", stage.name().toLowerCase(),
+                        h.percentileMillis(50), h.percentileMillis(99)));
+            }
+        }
+        if (!errors.isEmpty()) {
+            line.append(" errors=").append(errorCounts());
+        }
+        return line.toString();
+    }
+
+    private Map<String, Long> errorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        errors.forEach((type, count) -> counts.put(type, count.sum()));
+        return counts;
+    }
+
+    public String toJson(int frontierSize) {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append(String.format(Locale.ROOT, "  \"elapsedSeconds\": %.3f,\n", getElapsedSeconds()));
+        json.append("  \"pages\": ").append(getPages()).append(",\n");
+        json.append(String.format(Locale.ROOT, "  \"pagesPerSecond\": %.3f,\n", getPagesPerSecond()));
+        json.append("  \"frontierSize\": ").append(frontierSize).append(",\n");
+
+        json.append("  \"stages\": {");
+        String separator = "\n";
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = stages.get(stage);
+            json.append(separator).append(String.format(Locale.ROOT,
+                    "    \"%s\": {\"count\": %d, \"totalSeconds\": %.3f, \"meanMillis\": %.3f, \"p50Millis\": %.3f, "
+                            + "\"p90Millis\": %.3f, \"p99Millis\": %.3f, \"p999Millis\": %.3f, \"maxMillis\": %.3f}",
+                    stage.name().toLowerCase(), h.getCount(), h.getTotalSeconds(), h.getMeanMillis(),
+                    h.percentileMillis(50), h.percentileMillis(90), h.percentileMillis(99), h.percentileMillis(99.9),
+                    h.getMaxMillis()));
+            separator = ",\n";
+        }
+        json.append("\n  },\n");
+
+        json.append("  \"errors\": {");
+        separator = "\n";
+        for (Map.Entry<String, Long> error : errorCounts().entrySet()) {
+            json.append(separator).append("    \"").append(error.getKey()).append("\": ").append(error.getValue());
+            separator = ",\n";
+        }
+        json.append(errors.isEmpty() ? "}\n" : "\n  }\n");
+        return json.append("}\n").toString();
+    }
+
+    public void writeJson(File file, int frontierSize) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.print(toJson(frontierSize));
+        }
+    }
+}
@@ -1,143 +1,397 @@
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.SetMultimap;
-import com.google.common.collect.Sets;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
-import org.openqa.selenium.*;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.TimeoutException;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 //import Jsoup library
 // import Selenium for web driver capabilities
 
 /**
- * Crawler object class.
+ * Crawler object class. A fixed pool of workers, each with its own PageFetcher, pulls URLs from a shared
+ * de-duplicated frontier, and a per-host rate limit keeps the crawl polite. By default static pages are
+ * fetched over plain HTTP and only recipe pages go through headless Chrome (see FetchPolicy).
+ * The crawl state is checkpointed every 30 seconds, and a crawler created with resume = true picks up from
+ * the last checkpoint instead of starting over (see CrawlCheckpoint).
+ * Recipe links also go straight into an in-memory graph (getGraph) that can be handed to Matrix without a
+ * csv round-trip; inlinks.csv/outlinks.csv are then an optional export (setLinkCsvExport).
+ * Links are canonicalized (UrlCanonicalizer) and interned to dense ids (UrlInterner), and the frontier and
+ * link bookkeeping only hold those ids, so each URL string is kept once no matter how often it's linked.
+ * Each recipe link is kept once too, as a pair of ids in the graph builder, which also drops repeated links.
+ * Per-stage latencies, throughput and errors are collected in CrawlMetrics, printed every 10 seconds and
+ * saved to crawl-metrics.json when the crawl ends.
  **/
 public class Crawler {
-    private String seed;
-    private Set<String> recipeLinks; // map of recipes to their inlinks
-    private Set<String> crawled; // set to keep track of the recipe pages
-    private SetMultimap<String, String> inlinkMap; // multi map to keep track of recipe inlinks
+    private static final int DEFAULT_WORKERS = 4;
+    private static final long DEFAULT_HOST_DELAY_MILLIS = 250;
+    private static final int MAX_RECIPES = 200; // stop following outlinks once this many recipes are known
+    private static final long CHECKPOINT_MILLIS = 30_000;
+    private static final long REPORT_MILLIS = 10_000;
 
-    private WebDriver driver; // selenium web driver
+    private String seed;
+    private String seedHost; // only links on the seed's host are followed
+    private UrlInterner urls; // canonical url <--> id for everything the crawl has seen
+    private CrawlFrontier frontier; // shared queue of pages to crawl + set of every page seen
+    private ConcurrentBitSet linkTargets; // pages that have at least one inlink
+    private AtomicInteger linkTargetCount = new AtomicInteger();
+    private ConcurrentGraphBuilder graphBuilder; // recipe link graph built as links are found
+
+    private int workers; // number of pages fetched in parallel
+    private HostRateLimiter rateLimiter; // spaces out requests to the same host
+    private Supplier<PageFetcher> fetcherFactory; // creates one fetcher per worker
+    private WebDriverPool pool; // browser sessions for recipe pages, null if the fetchers don't use one
+    private boolean ownsPool; // close the pool when the crawl ends
 
     private File dir; // root directory for output
-    private File inlinksFile; // csv file with crawl data for inlinks
-    private File outlinksFile; // csv file with crawl data for outlinks
-    private File detailsFile; // csv file with details about each site
+    private CsvSink inlinksSink; // csv file with crawl data for inlinks, written as edges are found
+    private CsvSink outlinksSink; // csv file with crawl data for outlinks
+    private CsvSink detailsSink; // csv file with details about each site
+    private boolean exportLinks = true; // also write inlinks.csv and outlinks.csv
+    private boolean resume; // continue from checkpointFile if it exists
+    private File checkpointFile; // last saved crawl state
+    private CrawlMetrics metrics = new CrawlMetrics(); // stage timings and counters of the current crawl
+    private ReadWriteLock checkpointLock = new ReentrantReadWriteLock(true); // workers read, checkpoints write
 
     public Crawler(String url) {
-        this.seed = url;
-        this.recipeLinks = new HashSet<>();
-        this.crawled = new HashSet<>();
-        this.inlinkMap = HashMultimap.create();
+        this(url, false);
+    }
+
+    // resume = continue from the last checkpoint in the output directory if there is one
+    public Crawler(String url, boolean resume) {
+        this(url, WebDriverPool.headlessChrome(DEFAULT_WORKERS), true, resume);
+    }
+
+    // crawl with browser sessions from a pool that outlives this crawl
+    public Crawler(String url, WebDriverPool pool) {
+        this(url, pool, false, false);
+    }
 
-        // chrome web driver settings (uncomment appropriate webdriver settings)
-        System.setProperty("webdriver.chrome.driver", "src/resources/chromedriver"); // mac
-//        System.setProperty("webdriver.chrome.driver", "src/resources/chromedriver.exe"); // windows
+    private Crawler(String url, WebDriverPool pool, boolean ownsPool, boolean resume) {
+        this(url, DEFAULT_WORKERS, DEFAULT_HOST_DELAY_MILLIS, () -> new RoutingPageFetcher(pool), resume);
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
 
-        // options for web driver
-        ChromeOptions options = new ChromeOptions().addArguments("--headless"); // run a chrome browser in the background
-        this.driver = new ChromeDriver(options);
+    public Crawler(String url, int workers, long hostDelayMillis, Supplier<PageFetcher> fetcherFactory) {
+        this(url, workers, hostDelayMillis, fetcherFactory, false);
+    }
 
-        // create the output file
+    public Crawler(String url, int workers, long hostDelayMillis, Supplier<PageFetcher> fetcherFactory, boolean resume) {
+        this.seed = UrlCanonicalizer.canonicalize(url);
+        if (seed == null) {
+            throw new IllegalArgumentException("Seed must be an absolute http(s) url, got " + url);
+        }
+        this.seedHost = HostRateLimiter.hostOf(seed);
+        this.urls = new UrlInterner();
+        this.frontier = new CrawlFrontier(urls);
+        this.linkTargets = new ConcurrentBitSet();
+        this.graphBuilder = new ConcurrentGraphBuilder(urls);
+        this.workers = workers;
+        this.rateLimiter = new HostRateLimiter(hostDelayMillis);
+        this.fetcherFactory = fetcherFactory;
+
+        // output files are created when the crawl starts
         this.dir = new File(System.getProperty("user.dir"));
         this.dir.mkdir();
-        createOutFiles();
+        this.checkpointFile = new File(dir, "crawl.checkpoint");
+        this.resume = resume;
+    }
 
-        // add seed URL to links arraylist
-        this.recipeLinks.add(this.seed);
+    // where the csv files, checkpoint and metrics go (the working directory by default); call before crawl()
+    public void setOutputDirectory(File dir) {
+        this.dir = dir;
+        this.dir.mkdirs();
+        this.checkpointFile = new File(dir, "crawl.checkpoint");
+    }
+
+    // whether to write inlinks.csv and outlinks.csv (details.csv is always written); call before crawl()
+    public void setLinkCsvExport(boolean exportLinks) {
+        this.exportLinks = exportLinks;
+    }
+
+    // snapshot of the recipe link graph found so far, safe to call while the crawl is running
+    public LinkGraph getGraph() {
+        return graphBuilder.snapshot();
+    }
+
+    // metrics of the crawl in progress, or of the last one once crawl() returns
+    public CrawlMetrics getMetrics() {
+        return metrics;
     }
 
     public void crawl() {
-        // crawl recipes starting with the seed
-        crawl(this.seed);
+        metrics = new CrawlMetrics();
+        if (resume && checkpointFile.exists()) {
+            restoreCheckpoint();
+        } else {
+            createOutFiles(false);
 
-        // crawl the remaining links
-        Set<String> remaining = Sets.difference(recipeLinks, crawled);
-        remaining.forEach(this::crawl);
+            // add seed URL to the frontier
+            this.frontier.offer(this.seed);
+        }
 
-        writeInlinks();
+        ScheduledExecutorService checkpointer = Executors.newSingleThreadScheduledExecutor();
+        checkpointer.scheduleWithFixedDelay(() -> {
+            // an exception escaping the task would silently cancel every later checkpoint
+            try {
+                checkpoint();
+            } catch (RuntimeException e) {
+                metrics.error(e);
+                System.out.println("Checkpoint failed: " + e);
+            }
+        }, CHECKPOINT_MILLIS, CHECKPOINT_MILLIS, TimeUnit.MILLISECONDS);
+        // progress reports get their own thread so a checkpoint waiting on the write lock doesn't hold them up
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "crawl-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.println(metrics.report(frontier.size())),
+                REPORT_MILLIS, REPORT_MILLIS, TimeUnit.MILLISECONDS);
+
+        // start the workers and wait for the frontier to run dry
+        ExecutorService workerPool = Executors.newFixedThreadPool(workers);
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::work);
+        }
+        workerPool.shutdown();
+        try {
+            workerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            frontier.close();
+            workerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        checkpointer.shutdownNow();
+        reporter.shutdownNow();
+        checkpoint();
 
+        closeOutFiles();
+
+        System.out.println(metrics.report(frontier.size()));
+        try {
+            metrics.writeJson(new File(dir, "crawl-metrics.json"), frontier.size());
+        } catch (IOException e) {
+            System.out.println("Couldn't write crawl metrics: " + e.getMessage());
+        }
+
+        if (pool != null) {
+            System.out.println(pool);
+            if (ownsPool) {
+                pool.close();
+            }
+        }
+
+        if (!exportLinks) {
+            System.out.println("Done! Found " + graphBuilder.getNodeCount() + " pages and " + graphBuilder.getEdgeCount()
+                    + " recipe links, use getGraph() to rank them.");
+            return;
+        }
+        File inlinksFile = inlinksSink.getFile();
+        File outlinksFile = outlinksSink.getFile();
         if (inlinksFile.length() > 21 && outlinksFile.length() > 23) {
             System.out.println("Done! Check out the " + inlinksFile.getPath() + " file for inlinks and " + outlinksFile.getPath() + " for outlinks.");
         } else {
             System.out.println("Oops! Looks like the " + inlinksFile.getPath() + " file is empty. Something went wrong :/");
         }
+    }
 
-        // close the chrome window
-        driver.quit();
+    // worker loop: keep crawling pages from the frontier with this worker's own fetcher
+    private void work() {
+        try (PageFetcher fetcher = fetcherFactory.get()) {
+            fetcher.setMetrics(metrics);
+            String url;
+            while ((url = frontier.next()) != null) {
+                crawl(url, fetcher);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // the fetcher couldn't be created or closed; page errors are handled in crawl(url, fetcher)
+            metrics.error(e);
+            System.out.println("Worker stopped: " + e.getMessage());
+        }
     }
 
-    private void crawl(String url) {
+    private void crawl(String url, PageFetcher fetcher) throws InterruptedException {
+        Document d;
         try {
-            crawled.add(url);
+            d = fetch(url, fetcher);
+        } catch (InterruptedException e) {
+            // not crawled: put it back so the checkpoint taken on shutdown still has it as pending
+            checkpointLock.readLock().lock();
+            try {
+                frontier.requeue(url);
+            } finally {
+                checkpointLock.readLock().unlock();
+            }
+            throw e;
+        }
 
-            // use automated chrome to open up the url and then grab the document
-            driver.get(url);
-            Document d = url.contains("/recipe") ? loadRecipe(url) : Jsoup.parse(driver.getPageSource());
+        // the host wait and the fetch run unlocked; only the changes the page makes to the crawl state hold
+        // the read lock, so a checkpoint sees every page either fully processed or still pending
+        checkpointLock.readLock().lock();
+        try {
+            if (d != null) {
+                process(d, url);
+            }
+        } catch (RuntimeException e) {
+            metrics.error(e);
+            System.out.println("Couldn't crawl " + url + ": " + e);
+        } finally {
+            frontier.done(url);
+            checkpointLock.readLock().unlock();
+        }
+    }
 
-            // stop crawling outlinks once we've collected at most 200 recipes
-            if (inlinkMap.keySet().size() >= 200) {
-                return;
+    // wait for the host's turn and load url, or null if it couldn't be loaded
+    private Document fetch(String url, PageFetcher fetcher) throws InterruptedException {
+        try {
+            long start = System.nanoTime();
+            rateLimiter.acquire(url);
+            metrics.record(CrawlMetrics.Stage.HOST_WAIT, start);
+            start = System.nanoTime();
+            Document d = fetcher.fetch(url);
+            metrics.record(CrawlMetrics.Stage.FETCH, start);
+            metrics.pageDone();
+            return d;
+        } catch (TimeoutException | NoSuchElementException e) {
+            metrics.error(e);
+            System.out.println("Couldn't load dynamic content for " + url);
+        } catch (IOException e) {
+            metrics.error(e);
+            System.out.println("Couldn't fetch " + url + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            // e.g. a crashed renderer: skip this page, the worker carries on with the next one
+            metrics.error(e);
+            System.out.println("Couldn't crawl " + url + ": " + e);
+        }
+        return null;
+    }
+
+    // record a fetched page's details and links and queue the links that haven't been seen yet
+    private void process(Document d, String url) {
+        if (url.contains("/recipe")) {
+            try {
+                recordRecipe(d, url);
+            } catch (IndexOutOfBoundsException e) {
+                // partly rendered page: no details row, but its links are still worth following
+                metrics.error(e);
+                System.out.println("Couldn't grab percentage for " + url);
             }
+        }
+
+        // stop crawling outlinks once we've collected at most 200 recipes
+        if (linkTargetCount.get() >= MAX_RECIPES) {
+            return;
+        }
 
-            // collect outlinks
-            Set<String> outlinks = processLinks(d, url);
-            writeOutlinks(url, outlinks);
+        // collect outlinks and queue the ones we haven't seen yet
+        long start = System.nanoTime();
+        Set<String> outlinks = processLinks(d, url);
+        metrics.record(CrawlMetrics.Stage.PROCESS_LINKS, start);
+        writeOutlinks(url, outlinks);
+        outlinks.forEach(frontier::offer);
+    }
+
+    // append = keep what's in the files (when resuming) instead of starting them over
+    private void createOutFiles(boolean append) {
+        try {
+            this.detailsSink = new CsvSink(new File(dir, "details.csv"), "Recipe Title,Recipe URL,\"Would Make Again\" %,Tips Count",
+                    append, 64 * 1024, 1000);
+            if (exportLinks) {
+                this.inlinksSink = new CsvSink(new File(dir, "inlinks.csv"), "Recipe URL,Inlink URL", append, 64 * 1024, 1000);
+                this.outlinksSink = new CsvSink(new File(dir, "outlinks.csv"), "Recipe URL,Outlink URL", append, 64 * 1024, 1000);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't create the output files in " + dir.getPath(), e);
+        }
+    }
 
-            // crawl the outlinks
-            for (String link : outlinks) {
-                if (link.contains("/recipe") && !crawled.contains(link)) {
-                    crawl(link);
+    // save the frontier, seen urls, inlinks and output lengths while no page is being processed
+    private void checkpoint() {
+        checkpointLock.writeLock().lock();
+        try {
+            for (CsvSink sink : new CsvSink[]{detailsSink, inlinksSink, outlinksSink}) {
+                if (sink != null) {
+                    sink.flush();
                 }
             }
-        } catch (TimeoutException | NoSuchElementException e) {
-            System.out.println("Couldn't load dynamic content for " + url);
-        } catch (IndexOutOfBoundsException e) {
-            System.out.println("Couldn't grab percentage for " + url);
-        }
-    }
-
-    private void createOutFiles() {
-        this.detailsFile = new File(dir.getPath() + "/details.csv");
-        this.inlinksFile = new File(dir.getPath() + "/inlinks.csv");
-        this.outlinksFile = new File(dir.getPath() + "/outlinks.csv");
-        try (FileWriter dWriter = new FileWriter(this.detailsFile);
-             FileWriter iWriter = new FileWriter(this.inlinksFile);
-             FileWriter oWriter = new FileWriter(this.outlinksFile)
-        ) {
-            dWriter.write("Recipe Title,Recipe URL,\"Would Make Again\" %,Tips Count\n");
-            iWriter.write("Recipe URL,Inlink URL\n");
-            oWriter.write("Recipe URL,Outlink URL\n");
+            int[][] edges = graphBuilder.edges();
+            List<String[]> inlinks = new ArrayList<>(edges[0].length);
+            for (int e = 0; e < edges[0].length; e++) {
+                inlinks.add(new String[]{urls.getUrl(edges[1][e]), urls.getUrl(edges[0][e])});
+            }
+            new CrawlCheckpoint(lengthOf(detailsSink), lengthOf(inlinksSink), lengthOf(outlinksSink), frontier.seenUrls(), frontier.pendingUrls(), inlinks)
+                    .save(checkpointFile);
         } catch (IOException e) {
-            e.printStackTrace();
+            System.out.println("Couldn't write checkpoint: " + e.getMessage());
+        } finally {
+            checkpointLock.writeLock().unlock();
         }
     }
 
-    private Document loadRecipe(String url) {
-        // generate dynamic content by scrolling to bottom
-        WebElement element = driver.findElement(By.className("recipe-submit-cta"));
-        ((JavascriptExecutor) driver)
-                .executeScript("arguments[0].scrollIntoView();", element);
-        WebDriverWait wait = new WebDriverWait(driver, 5);
-        wait.until(ExpectedConditions.visibilityOfElementLocated(By.className("related-recipes")));
+    private static long lengthOf(CsvSink sink) {
+        return sink == null ? 0 : sink.getFile().length();
+    }
+
+    // reload the last checkpoint and cut the outputs back to match it
+    private void restoreCheckpoint() {
+        try {
+            CrawlCheckpoint checkpoint = CrawlCheckpoint.load(checkpointFile);
+            checkpoint.truncateOutputs(new File(dir, "details.csv"),
+                    exportLinks ? new File(dir, "inlinks.csv") : null, exportLinks ? new File(dir, "outlinks.csv") : null);
+            createOutFiles(true);
+            frontier.restore(checkpoint.getSeen(), checkpoint.getPending());
+            // every url but the seed was queued because a link pointed at it
+            for (String url : checkpoint.getSeen()) {
+                if (!url.equals(seed)) {
+                    addLinkTarget(urls.intern(url));
+                }
+            }
+            for (String[] pair : checkpoint.getInlinks()) {
+                if (pair[0].contains("/recipe")) {
+                    graphBuilder.addEdge(urls.intern(pair[1]), urls.intern(pair[0]));
+                }
+            }
+            System.out.println("Resuming crawl: " + checkpoint.getSeen().size() + " urls seen, "
+                    + checkpoint.getPending().size() + " still to crawl");
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't resume from " + checkpointFile.getPath(), e);
+        }
+    }
 
-        // parse the html after the related recipes have loaded
-        Document d = Jsoup.parse(driver.getPageSource());
+    private void closeOutFiles() {
+        for (CsvSink sink : new CsvSink[]{detailsSink, inlinksSink, outlinksSink}) {
+            if (sink == null) {
+                continue;
+            }
+            try {
+                sink.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
 
+    private void recordRecipe(Document d, String url) {
         // extract name of recipe
-        String recipeName = d.title().replace(",", "-");
+        String recipeName = d.title();
 
         // extract "would make again" percentage
         String percentage = grabPercentage(d);
@@ -147,8 +401,6 @@ public class Crawler {
 
         // add recipe, url, percentage, and inlink to csv
         addEntry(recipeName, url, percentage, tipsCt);
-
-        return d;
     }
 
     private String grabPercentage(Document d) {
@@ -164,63 +416,68 @@ public class Crawler {
     }
 
     private void addEntry(String... inputs) {
-        try (FileWriter writer = new FileWriter(this.detailsFile, true)) {
-            StringBuilder entry = new StringBuilder();
-            for (int i = 0; i < inputs.length; i++) {
-                String input = inputs[i];
-                entry.append(input);
-                if (i < inputs.length - 1) {
-                    entry.append(",");
-                } else {
-                    entry.append("\n");
-                }
-            }
-            writer.write(entry.toString());
+        try {
+            long start = System.nanoTime();
+            detailsSink.write(inputs);
+            metrics.record(CrawlMetrics.Stage.CSV_WRITE, start);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     private void writeOutlinks(String url, Set<String> outlinks) {
-        try (FileWriter writer = new FileWriter(this.outlinksFile, true)) {
-            StringBuilder entry = new StringBuilder();
+        if (outlinksSink == null) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
             for (String outlink : outlinks) {
                 if (outlink.contains("/recipe")) {
-                    entry.append(url).append(",").append(outlink).append("\n");
+                    outlinksSink.write(url, outlink);
                 }
             }
-            writer.write(entry.toString());
+            metrics.record(CrawlMetrics.Stage.CSV_WRITE, start);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    private void writeInlinks() {
-        try (FileWriter writer = new FileWriter(this.inlinksFile, true)) {
-            StringBuilder entry = new StringBuilder();
-            this.inlinkMap.forEach((url, inlink) -> {
-                if (url.contains("/recipe")) {
-                    entry.append(url).append(",").append(inlink).append("\n");
-                }
-            });
-            writer.write(entry.toString());
+    // stream an inlink row the first time an edge into a recipe is seen
+    private void writeInlink(String url, String inlink) {
+        if (inlinksSink == null) {
+            return;
+        }
+        try {
+            inlinksSink.write(url, inlink);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    // count target towards MAX_RECIPES the first time any link points at it
+    private void addLinkTarget(int target) {
+        if (linkTargets.set(target)) {
+            linkTargetCount.incrementAndGet();
+        }
+    }
+
     private Set<String> processLinks(Document d, String inlink) {
         Set<String> outlinks = new HashSet<>();
         try {
-            Elements urls = d.select("a[href]");
-
-            for (Element link : urls) {
-                String href = link.attr("href").startsWith("/") ? "https://tasty.co" + link.attr("href") : link.attr("href");
-                // check to see if link is a tasty.co link
-                if (isLink(href)) {
-                    recipeLinks.add(href);
-                    outlinks.add(href);
-                    inlinkMap.put(href, inlink);
+            Elements anchors = d.select("a[href]");
+            int inlinkId = urls.intern(inlink);
+
+            for (Element link : anchors) {
+                // resolve relative links against the page's own url, then drop queries, fragments etc.
+                String href = UrlCanonicalizer.canonicalize(link.absUrl("href"));
+                // check to see if link is a link on the site we're crawling
+                if (href != null && isLink(href) && outlinks.add(href)) {
+                    int hrefId = urls.intern(href);
+                    addLinkTarget(hrefId);
+                    // the graph builder drops links it already has, so each inlink row is written once
+                    if (href.contains("/recipe") && graphBuilder.addEdge(inlinkId, hrefId)) {
+                        writeInlink(href, inlink);
+                    }
                 }
             }
         } catch (Exception e) {
@@ -231,6 +488,8 @@ public class Crawler {
     }
 
     private boolean isLink(String href) {
-        return href.contains("tasty.co") && (href.contains("/recipe") || href.contains("/topic"));
+        String host = HostRateLimiter.hostOf(href);
+        boolean onSite = host.equals(seedHost) || host.endsWith("." + seedHost);
+        return onSite && (href.contains("/recipe") || href.contains("/topic"));
     }
 } //end Crawler
@@ -9,6 +9,11 @@ public class CrawlerExample {
 //        String URL = "https://tasty.co/recipe/easter-savory-pie-pizza-rustica";
         String URL = "https://tasty.co";
         Crawler crawler = new Crawler (URL);
+//        Crawler crawler = new Crawler (URL, true); // pick up where the last crawl stopped
         crawler.crawl();
+
+        // rank straight from the crawled graph, no need to re-read the csv files
+//        Matrix matrix = new Matrix(crawler.getGraph(), "details.csv");
+//        matrix.PageRank();
     }
 }
@@ -0,0 +1,67 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 style csv helpers shared by the crawler's writers and Matrix's readers.
+ * Fields with a comma, quote or line break are wrapped in quotes, and quotes inside them are doubled.
+ **/
+public final class CsvFormat {
+
+    private CsvFormat() {
+    }
+
+    public static String escape(String field) {
+        if (field == null) {
+            return "";
+        }
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return quote ? '"' + field.replace("\"", "\"\"") + '"' : field;
+    }
+
+    // append the fields as one csv row (with the trailing newline) to sb
+    public static void appendRow(StringBuilder sb, String... fields) {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(escape(fields[i]));
+        }
+        sb.append('\n');
+    }
+
+    // split one csv line into its fields, undoing the quoting done by escape()
+    public static String[] parseLine(String line) {
+        if (line.indexOf('"') < 0) {
+            return line.split(",", -1); // nothing quoted, take the fast path
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    inQuotes = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Csv output that keeps one buffered file handle open for the whole crawl instead of reopening the file
+ * for every record. Rows are escaped with CsvFormat and written out once flushBytes have piled up, or
+ * every flushMillis by a background flusher, whichever comes first. Safe to share between workers.
+ **/
+public class CsvSink implements Closeable {
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "csv-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final File file;
+    private final Writer writer;
+    private final int flushBytes;
+    private final StringBuilder row = new StringBuilder(); // reused to format each row
+    private final ScheduledFuture<?> timer;
+    private int buffered; // chars written since the last flush
+    private boolean closed;
+
+    // open file, truncating it and writing header unless append is set
+    public CsvSink(File file, String header, boolean append, int flushBytes, long flushMillis) throws IOException {
+        this.file = file;
+        this.flushBytes = flushBytes;
+        boolean writeHeader = !append || file.length() == 0;
+        this.writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, append), StandardCharsets.UTF_8), flushBytes);
+        if (writeHeader) {
+            writer.write(header);
+            writer.write('\n');
+        }
+        this.timer = FLUSHER.scheduleAtFixedRate(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // 64KB buffer flushed at least once a second
+    public CsvSink(File file, String header) throws IOException {
+        this(file, header, false, 64 * 1024, 1000);
+    }
+
+    public synchronized void write(String... fields) throws IOException {
+        row.setLength(0);
+        CsvFormat.appendRow(row, fields);
+        writer.append(row);
+        buffered += row.length();
+        if (buffered >= flushBytes) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        writer.flush();
+        buffered = 0;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            System.out.println("Couldn't flush " + file.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        timer.cancel(false);
+        if (!closed) {
+            closed = true;
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * EdgeDelta is the set of link changes between two crawls: edges that were added or removed and recipes that
+ * are new. Applying it to a LinkGraph gives the updated graph with every old recipe keeping its node id, so the
+ * old rank vector lines up with the new graph without any remapping.
+ * */
+public class EdgeDelta {
+    private final List<String[]> added = new ArrayList<>(); //{from, to}
+    private final List<String[]> removed = new ArrayList<>();
+    private final Set<String> newRecipes = new LinkedHashSet<>();
+
+    public EdgeDelta addEdge(String from, String to) {
+        added.add(new String[]{from, to});
+        return this;
+    }
+
+    public EdgeDelta removeEdge(String from, String to) {
+        removed.add(new String[]{from, to});
+        return this;
+    }
+
+    public EdgeDelta addRecipe(String url) {
+        newRecipes.add(url);
+        return this;
+    }
+
+    public List<String[]> getAdded() {
+        return added;
+    }
+
+    public List<String[]> getRemoved() {
+        return removed;
+    }
+
+    public Set<String> getNewRecipes() {
+        return newRecipes;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && newRecipes.isEmpty();
+    }
+
+    //the changes that turn previous into current, e.g. yesterday's and today's crawl
+    public static EdgeDelta between(LinkGraph previous, LinkGraph current) {
+        EdgeDelta delta = new EdgeDelta();
+        for (int n = 0; n < current.getNodeCount(); n++) {
+            if (!previous.getDictionary().contains(current.getUrl(n))) {
+                delta.addRecipe(current.getUrl(n));
+            }
+        }
+        collectMissingEdges(current, previous, delta, true);
+        collectMissingEdges(previous, current, delta, false);
+        return delta;
+    }
+
+    //every edge of from that isn't in to goes into delta as added (or removed)
+    private static void collectMissingEdges(LinkGraph from, LinkGraph to, EdgeDelta delta, boolean asAdded) {
+        int[] offsets = from.getOutOffsets();
+        int[] targets = from.getOutTargets();
+        int[] toOffsets = to.getOutOffsets();
+        int[] toTargets = to.getOutTargets();
+        UrlDictionary toDictionary = to.getDictionary();
+        for (int n = 0; n < from.getNodeCount(); n++) {
+            int source = toDictionary.lookup(from.getUrl(n));
+            for (int e = offsets[n]; e < offsets[n + 1]; e++) {
+                int target = toDictionary.lookup(from.getUrl(targets[e]));
+                //rows are sorted, so the edge can be found with a binary search
+                boolean present = source >= 0 && target >= 0
+                        && Arrays.binarySearch(toTargets, toOffsets[source], toOffsets[source + 1], target) >= 0;
+                if (!present) {
+                    if (asAdded) {
+                        delta.addEdge(from.getUrl(n), from.getUrl(targets[e]));
+                    } else {
+                        delta.removeEdge(from.getUrl(n), from.getUrl(targets[e]));
+                    }
+                }
+            }
+        }
+    }
+
+    //the graph with this delta applied; old recipes keep their ids and new ones are appended
+    public LinkGraph applyTo(LinkGraph graph) {
+        UrlDictionary dictionary = new UrlDictionary();
+        for (String url : graph.getDictionary().getUrls()) {
+            dictionary.intern(url);
+        }
+        for (String url : newRecipes) {
+            dictionary.intern(url);
+        }
+
+        Set<Long> removedEdges = new HashSet<>();
+        for (String[] edge : removed) {
+            int from = dictionary.lookup(edge[0]);
+            int to = dictionary.lookup(edge[1]);
+            if (from >= 0 && to >= 0) {
+                removedEdges.add(key(from, to));
+            }
+        }
+
+        GraphBuilder builder = new GraphBuilder();
+        int[] offsets = graph.getOutOffsets();
+        int[] targets = graph.getOutTargets();
+        for (int n = 0; n < graph.getNodeCount(); n++) {
+            for (int e = offsets[n]; e < offsets[n + 1]; e++) {
+                if (removedEdges.isEmpty() || !removedEdges.contains(key(n, targets[e]))) {
+                    builder.addEdge(n, targets[e]);
+                }
+            }
+        }
+        for (String[] edge : added) {
+            builder.addEdge(dictionary.intern(edge[0]), dictionary.intern(edge[1]));
+        }
+        return builder.build(dictionary);
+    }
+
+    //the nodes of graph (after applying this delta) whose PageRank inputs changed directly
+    public int[] affectedNodes(LinkGraph graph) {
+        Set<Integer> affected = new LinkedHashSet<>();
+        UrlDictionary dictionary = graph.getDictionary();
+        for (String url : newRecipes) {
+            affected.add(dictionary.lookup(url));
+        }
+        List<String[]> changed = new ArrayList<>(added);
+        changed.addAll(removed);
+        int[] offsets = graph.getOutOffsets();
+        int[] targets = graph.getOutTargets();
+        for (String[] edge : changed) {
+            int from = dictionary.lookup(edge[0]);
+            int to = dictionary.lookup(edge[1]);
+            if (to >= 0) {
+                affected.add(to);
+            }
+            if (from >= 0) {
+                //the source's out-degree changed, so the share it passes to every outlink changed too
+                affected.add(from);
+                for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+                    affected.add(targets[e]);
+                }
+            }
+        }
+        affected.remove(-1);
+        int[] nodes = new int[affected.size()];
+        int i = 0;
+        for (int node : affected) {
+            nodes[i++] = node;
+        }
+        return nodes;
+    }
+
+    private static long key(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
+    }
+}
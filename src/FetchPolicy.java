@@ -0,0 +1,40 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Decides per URL whether a page can be fetched as static html or needs a real browser.
+ * Rules are checked in the order they were added and the first matching pattern wins.
+ **/
+public class FetchPolicy {
+    public enum Mode { STATIC, BROWSER }
+
+    private List<Pattern> patterns = new ArrayList<>();
+    private List<Mode> modes = new ArrayList<>();
+    private Mode defaultMode;
+
+    public FetchPolicy(Mode defaultMode) {
+        this.defaultMode = defaultMode;
+    }
+
+    // tasty.co only renders tips and related recipes with javascript on recipe pages
+    public static FetchPolicy tastyDefault() {
+        return new FetchPolicy(Mode.STATIC).route(".*/recipe/.*", Mode.BROWSER);
+    }
+
+    // send urls matching regex to the given fetcher
+    public FetchPolicy route(String regex, Mode mode) {
+        patterns.add(Pattern.compile(regex));
+        modes.add(mode);
+        return this;
+    }
+
+    public Mode modeFor(String url) {
+        for (int i = 0; i < patterns.size(); i++) {
+            if (patterns.get(i).matcher(url).matches()) {
+                return modes.get(i);
+            }
+        }
+        return defaultMode;
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.Arrays;
+
+/*
+ * GraphBuilder collects directed edges as pairs of int ids in growable primitive arrays and turns them into
+ * a compressed sparse row (CSR) LinkGraph. Duplicate edges and self links are dropped when the graph is built.
+ * */
+public class GraphBuilder {
+    private int[] sources = new int[1024]; //edge i goes from sources[i]...
+    private int[] targets = new int[1024]; //...to targets[i]
+    private int edgeCount;
+
+    public void addEdge(int from, int to) {
+        if (edgeCount == sources.length) {
+            int newLength = sources.length * 2;
+            sources = Arrays.copyOf(sources, newLength);
+            targets = Arrays.copyOf(targets, newLength);
+        }
+        sources[edgeCount] = from;
+        targets[edgeCount] = to;
+        edgeCount++;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    //build the out- and in-adjacency CSR arrays for nodeCount nodes named by dictionary
+    public LinkGraph build(UrlDictionary dictionary) {
+        int nodeCount = dictionary.size();
+
+        //counting sort the edges by source into the outlink rows
+        int[] outOffsets = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            outOffsets[sources[e] + 1]++;
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            outOffsets[n + 1] += outOffsets[n];
+        }
+        int[] outTargets = new int[edgeCount];
+        int[] next = Arrays.copyOf(outOffsets, nodeCount);
+        for (int e = 0; e < edgeCount; e++) {
+            outTargets[next[sources[e]]++] = targets[e];
+        }
+
+        //sort every row and squeeze out duplicate edges and self links in place
+        int write = 0;
+        int rowStart = 0;
+        for (int n = 0; n < nodeCount; n++) {
+            int rowEnd = outOffsets[n + 1];
+            Arrays.sort(outTargets, rowStart, rowEnd);
+            outOffsets[n] = write;
+            int last = -1;
+            for (int e = rowStart; e < rowEnd; e++) {
+                int t = outTargets[e];
+                if (t != last && t != n) {
+                    outTargets[write++] = t;
+                }
+                last = t;
+            }
+            rowStart = rowEnd;
+        }
+        outOffsets[nodeCount] = write;
+        outTargets = Arrays.copyOf(outTargets, write);
+
+        //the inlink rows are the transpose of the outlink rows
+        int[] inOffsets = new int[nodeCount + 1];
+        for (int t : outTargets) {
+            inOffsets[t + 1]++;
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            inOffsets[n + 1] += inOffsets[n];
+        }
+        int[] inSources = new int[write];
+        next = Arrays.copyOf(inOffsets, nodeCount);
+        for (int n = 0; n < nodeCount; n++) {
+            for (int e = outOffsets[n]; e < outOffsets[n + 1]; e++) {
+                inSources[next[outTargets[e]]++] = n; //sources come out sorted since n is increasing
+            }
+        }
+
+        return new LinkGraph(dictionary, inOffsets, inSources, outOffsets, outTargets);
+    }
+}
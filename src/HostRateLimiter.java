@@ -0,0 +1,47 @@
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the crawler polite: requests to the same host are spaced at least minDelayMillis apart,
+ * no matter how many workers are fetching. Different hosts don't wait on each other.
+ **/
+public class HostRateLimiter {
+    private final long minDelayNanos;
+    private final ConcurrentMap<String, AtomicLong> nextSlot = new ConcurrentHashMap<>(); // host -> earliest next request
+
+    public HostRateLimiter(long minDelayMillis) {
+        this.minDelayNanos = minDelayMillis * 1_000_000L;
+    }
+
+    // blocks until the host of url may be hit again
+    public void acquire(String url) throws InterruptedException {
+        if (minDelayNanos <= 0) {
+            return;
+        }
+        AtomicLong slot = nextSlot.computeIfAbsent(hostOf(url), h -> new AtomicLong(System.nanoTime()));
+        while (true) {
+            long now = System.nanoTime();
+            long next = slot.get();
+            long start = Math.max(now, next);
+            // reserve the slot, then sleep until it comes up
+            if (slot.compareAndSet(next, start + minDelayNanos)) {
+                long wait = start - now;
+                if (wait > 0) {
+                    Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+                }
+                return;
+            }
+        }
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? "" : host;
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * IncrementalPageRank updates an existing rank vector after a small change to the graph instead of
+ * recomputing from the uniform vector. It warm-starts from the old ranks and only recomputes nodes that are
+ * on a worklist: first the nodes a delta touched directly, then the outlinks of any node whose rank moved by
+ * more than tolerance / recipeCount. When the worklist runs dry one full residual sweep checks the whole
+ * graph (the teleport and dangling terms are global) and puts anything still off back on the worklist.
+ *
+ * PageRank is global, so even a few changed links move most ranks by more than tolerance / recipeCount and
+ * the worklist tends to reach most of the graph. The worklist therefore gets a budget of WORKLIST_BUDGET * n
+ * node updates (a residual sweep counts as n), and once that is spent PageRankEngine finishes the job,
+ * warm-started from the ranks reached so far. On a 20k recipe, 100k link power-law graph where a cold run
+ * takes 13 iterations (13 * n node updates), changing 0.01% of the links cost 1.5 * n node updates, and 0.1%,
+ * 2% and 10% fell back and cost 4 * n, 8 * n and 10 * n in total. So the saving is real only for small
+ * recrawls, and a large one costs about as much as a warm-started full run rather than more.
+ * */
+public class IncrementalPageRank {
+    private static final int WORKLIST_BUDGET = 2; //node updates the worklist may spend, in multiples of n
+
+    private final LinkGraph graph;
+    private final PageRankConfig config;
+    private long nodeUpdates; //how many single-node recomputations the last update needed
+    private boolean fellBack; //whether the last update ran out of budget and finished with PageRankEngine
+
+    public IncrementalPageRank(LinkGraph graph, PageRankConfig config) {
+        this.graph = graph;
+        this.config = config;
+    }
+
+    /*
+     * warmRanks = last ranks lined up with this graph's ids (NaN for recipes that are new)
+     * affected = nodes whose inputs changed, e.g. from EdgeDelta.affectedNodes
+     * */
+    public PageRankResult update(double[] warmRanks, int[] affected) {
+        final int n = graph.getNodeCount();
+        final int[] inOffsets = graph.getInOffsets();
+        final int[] inSources = graph.getInSources();
+        final int[] outOffsets = graph.getOutOffsets();
+        final int[] outTargets = graph.getOutTargets();
+        final double damping = config.getDamping();
+        final double teleport = (1 - damping) / n;
+        final double epsilon = config.getTolerance() / n;
+
+        //warm start: old ranks, 1/n for new recipes, scaled back to a sum of 1
+        double[] ranks = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            ranks[i] = Double.isNaN(warmRanks[i]) ? 1 / (double) n : warmRanks[i];
+            sum += ranks[i];
+        }
+        double dangling = 0;
+        for (int i = 0; i < n; i++) {
+            ranks[i] /= sum;
+            if (outOffsets[i + 1] == outOffsets[i]) {
+                dangling += ranks[i];
+            }
+        }
+
+        //worklist as a ring buffer, each node is queued at most once
+        int[] queue = new int[n];
+        boolean[] queued = new boolean[n];
+        int head = 0, size = 0;
+        for (int node : affected) {
+            if (!queued[node]) {
+                queued[node] = true;
+                queue[(head + size++) % n] = node;
+            }
+        }
+
+        nodeUpdates = 0;
+        fellBack = false;
+        long updateBudget = (long) WORKLIST_BUDGET * n; //past this a warm full run is cheaper
+        int sweeps = 0;
+        double residual = Double.MAX_VALUE;
+        while (sweeps < config.getMaxIterations()) {
+            //push changes along outlinks until nothing moves by more than epsilon
+            while (size > 0 && nodeUpdates + (long) sweeps * n < updateBudget) {
+                int j = queue[head];
+                head = (head + 1) % n;
+                size--;
+                queued[j] = false;
+                nodeUpdates++;
+
+                double inSum = 0;
+                for (int k = inOffsets[j]; k < inOffsets[j + 1]; k++) {
+                    int i = inSources[k];
+                    inSum += ranks[i] / (outOffsets[i + 1] - outOffsets[i]);
+                }
+                double updated = teleport + damping * (dangling / n + inSum);
+                double change = updated - ranks[j];
+                if (Math.abs(change) > epsilon) {
+                    ranks[j] = updated;
+                    if (outOffsets[j + 1] == outOffsets[j]) {
+                        dangling += change; //moves the base of every node, caught by the sweep below
+                    }
+                    for (int e = outOffsets[j]; e < outOffsets[j + 1]; e++) {
+                        int t = outTargets[e];
+                        if (!queued[t]) {
+                            queued[t] = true;
+                            queue[(head + size++) % n] = t;
+                        }
+                    }
+                }
+            }
+
+            //full residual sweep: how far is every node from its PageRank equation?
+            sweeps++;
+            residual = 0;
+            double base = teleport + damping * dangling / n;
+            for (int j = 0; j < n; j++) {
+                double inSum = 0;
+                for (int k = inOffsets[j]; k < inOffsets[j + 1]; k++) {
+                    int i = inSources[k];
+                    inSum += ranks[i] / (outOffsets[i + 1] - outOffsets[i]);
+                }
+                double off = Math.abs(base + damping * inSum - ranks[j]);
+                residual += off;
+                if (off > epsilon && !queued[j]) {
+                    queued[j] = true;
+                    queue[(head + size++) % n] = j;
+                }
+            }
+            if (config.isVerbose()) {
+                System.out.println("Sweep: " + sweeps + " --> residual = " + residual + " after " + nodeUpdates + " node updates");
+            }
+            if (residual < config.getTolerance()) {
+                break;
+            }
+            if (nodeUpdates + (long) sweeps * n >= updateBudget) {
+                return fallBack(ranks, sweeps);
+            }
+        }
+
+        //the thresholds let the sum drift a little, put it back to 1
+        sum = 0;
+        for (double r : ranks) {
+            sum += r;
+        }
+        for (int i = 0; i < n; i++) {
+            ranks[i] /= sum;
+        }
+        return new PageRankResult(ranks, sweeps, residual, residual < config.getTolerance());
+    }
+
+    //finish with power iteration from the ranks the worklist got to
+    private PageRankResult fallBack(double[] ranks, int sweeps) {
+        fellBack = true;
+        double sum = 0;
+        for (double r : ranks) {
+            sum += r;
+        }
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] /= sum;
+        }
+        PageRankResult result = new PageRankEngine(graph, config).run(ranks);
+        nodeUpdates += (long) result.getIterations() * ranks.length;
+        if (config.isVerbose()) {
+            System.out.println("Worklist budget spent after " + sweeps + " sweeps, finished with " + result.getIterations()
+                    + " power iterations");
+        }
+        return new PageRankResult(result.getRanks(), sweeps + result.getIterations(), result.getDelta(),
+                result.isConverged());
+    }
+
+    public long getNodeUpdates() {
+        return nodeUpdates;
+    }
+
+    public boolean fellBack() {
+        return fellBack;
+    }
+}
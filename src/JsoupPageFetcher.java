@@ -0,0 +1,34 @@
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+
+/**
+ * Fetcher for static pages: a plain HTTP GET parsed by Jsoup, with no browser behind it.
+ * Much cheaper than Chrome for pages whose links are in the server-rendered html, like /topic pages.
+ **/
+public class JsoupPageFetcher implements PageFetcher {
+    private static final String USER_AGENT = "Mozilla/5.0 (compatible; sheRanks crawler)";
+    private int timeoutMillis;
+
+    public JsoupPageFetcher() {
+        this(10_000);
+    }
+
+    public JsoupPageFetcher(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public Document fetch(String url) throws IOException {
+        return Jsoup.connect(url)
+                .userAgent(USER_AGENT)
+                .timeout(timeoutMillis)
+                .get();
+    }
+
+    @Override
+    public void close() {
+        // nothing to release, every fetch uses its own connection
+    }
+}
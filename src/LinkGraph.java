@@ -0,0 +1,118 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/*
+ * LinkGraph is the recipe link graph in compressed sparse row (CSR) form. Node ids come from a UrlDictionary.
+ * The inlinks of node n are inSources[inOffsets[n]] .. inSources[inOffsets[n+1]-1] and its outlinks are
+ * outTargets[outOffsets[n]] .. outTargets[outOffsets[n+1]-1], so PageRank can walk plain int arrays.
+ * */
+public class LinkGraph {
+    private final UrlDictionary dictionary;
+    private final int[] inOffsets, inSources; //CSR rows for inlinks
+    private final int[] outOffsets, outTargets; //CSR rows for outlinks
+
+    public LinkGraph(UrlDictionary dictionary, int[] inOffsets, int[] inSources, int[] outOffsets, int[] outTargets) {
+        this.dictionary = dictionary;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+    }
+
+    /*
+     * Builds the graph from the crawler's csv files in one streaming pass per file. Every URL in the inlinks
+     * file becomes a node, and a row "recipe,inlink" is the edge inlink --> recipe. Rows of the outlinks file
+     * add the edge recipe --> outlink when both ends are already known recipes. URLs are canonicalized, so
+     * crawls from before the crawler canonicalized links don't get a node per query string or trailing slash.
+     * */
+    public static LinkGraph fromCsv(File inlinkFile, File outlinkFile) throws IOException {
+        UrlDictionary dictionary = new UrlDictionary();
+        GraphBuilder builder = new GraphBuilder();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(inlinkFile))) {
+            String line = reader.readLine(); //skip header
+            while ((line = reader.readLine()) != null) {
+                String[] pair = splitPair(line);
+                if (pair == null) {
+                    continue; //blank or malformed line
+                }
+                int recipe = dictionary.intern(UrlCanonicalizer.canonicalOrSelf(pair[0]));
+                int inlink = dictionary.intern(UrlCanonicalizer.canonicalOrSelf(pair[1]));
+                builder.addEdge(inlink, recipe);
+            }
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(outlinkFile))) {
+            String line = reader.readLine(); //skip header
+            while ((line = reader.readLine()) != null) {
+                String[] pair = splitPair(line);
+                if (pair == null) {
+                    continue;
+                }
+                int recipe = dictionary.lookup(UrlCanonicalizer.canonicalOrSelf(pair[0]));
+                int outlink = dictionary.lookup(UrlCanonicalizer.canonicalOrSelf(pair[1]));
+                if (recipe >= 0 && outlink >= 0) {
+                    builder.addEdge(recipe, outlink);
+                }
+            }
+        }
+
+        return builder.build(dictionary);
+    }
+
+    //split a "url,url" row, only going through the full csv parser when a field is quoted
+    private static String[] splitPair(String line) {
+        if (line.indexOf('"') >= 0) {
+            String[] fields = CsvFormat.parseLine(line);
+            return fields.length == 2 ? fields : null;
+        }
+        int comma = line.indexOf(',');
+        if (comma < 0) {
+            return null;
+        }
+        return new String[]{line.substring(0, comma), line.substring(comma + 1)};
+    }
+
+    public int getNodeCount() {
+        return dictionary.size();
+    }
+
+    public int getEdgeCount() {
+        return outTargets.length;
+    }
+
+    public UrlDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public String getUrl(int node) {
+        return dictionary.getUrl(node);
+    }
+
+    public int inDegree(int node) {
+        return inOffsets[node + 1] - inOffsets[node];
+    }
+
+    public int outDegree(int node) {
+        return outOffsets[node + 1] - outOffsets[node];
+    }
+
+    //the raw CSR arrays are handed out directly so hot loops don't pay for a copy
+    public int[] getInOffsets() {
+        return inOffsets;
+    }
+
+    public int[] getInSources() {
+        return inSources;
+    }
+
+    public int[] getOutOffsets() {
+        return outOffsets;
+    }
+
+    public int[] getOutTargets() {
+        return outTargets;
+    }
+}
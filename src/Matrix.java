@@ -2,25 +2,39 @@ import java.io.*;
 import java.util.*;
 /*
 * This Matrix object class takes 3 files: inlinks.csv, outlinks.csv and details.csv generated from our crawler
-* from Tasty.co. In this class, we use the inlinks and outlinks file to build two adjacency matrices.
-* The list of unique recipes is created from the inlinks.csv file. The final PageRank is calculated using
-* the Random Surfer Model, displays the top 100 recipe URLs and their PageRanks, and outputs a detailedPR.csv
+* from Tasty.co. In this class, we use the inlinks and outlinks file to build CSR adjacency arrays (LinkGraph).
+* The unique recipes are interned from the inlinks.csv file. The final PageRank is calculated using
+* the Random Surfer Model, displays the top 100 (or top K) recipe URLs and their PageRanks, and outputs a detailedPR.csv
 * file that lists the top 100 recipes with their "Would Make Again %" and tip counts.
+* With a RankCache set, a graph that was already ranked with the same settings is answered from the cache,
+* and any other graph starts iterating from the closest cached ranks.
 * */
 public class Matrix {
-    private ArrayList<ArrayList<Integer>> adjInList = new ArrayList<>(); //adjacency list for inlinks
-    private ArrayList<ArrayList<Integer>> adjOutList = new ArrayList<>(); //adjacency list for outlinks
+    private LinkGraph graph; //CSR adjacency for inlinks and outlinks, node # = id in the graph's url dictionary
     private File inlinkFile, outlinkFile, detailedFile, outputPRFile, dir;
-    private ArrayList<String> recipeList = new ArrayList<>(); //list of unique recipes
     private int recipeCount; //number of recipes and node indexes
+    private PageRankConfig config = new PageRankConfig(); //damping, tolerance and iteration cap
+    private double[] lastRanks; //ranks from the last PageRank run, indexed by node
+    private int topK = 100; //how many recipes to display and write out
+    private RecipeDetails details; //"would make again" % and tips count per node
+    private RankCache rankCache; //results of earlier runs, null = always iterate from scratch
 
     //test Matrix
-    public static void main(String[] args) {
-        Matrix m = new Matrix("inlinks.csv", "outlinks.csv", "details.csv");
+    //pass a graph.bin made by BinaryGraphFile to skip parsing the csv files
+    public static void main(String[] args) throws IOException {
+        Matrix m = args.length > 0 && args[0].endsWith(".bin")
+                ? fromBinary(args[0], "details.csv")
+                : new Matrix("inlinks.csv", "outlinks.csv", "details.csv");
         System.out.print("\nOur crawl found " + m.getRecipeCount() + " unique recipes\n");
+        m.setRankCache(new RankCache(new File(".rankcache"), 8)); //reuse ranks while the crawl files don't change
         //m.showInAdjList();
         //m.showOutAdjList();
+        //m.getConfig().setVerbose(true); //print every iteration
+        //m.getConfig().useAllCores(); //split every iteration over all cores
+        //m.getConfig().setSolver(PageRankConfig.Solver.GAUSS_SEIDEL); //fewer iterations than plain power iteration
         m.PageRank();
+        //m.qualityPageRank(); //favour recipes people would make again
+        //m.saveRanks("ranks.bin"); //lets the next recrawl rerank incrementally
     }
 
     //pagerank obj that can return the list of the top recipes
@@ -35,106 +49,83 @@ public class Matrix {
         this.outlinkFile=f2;
         this.detailedFile=f3;
         this.outputPRFile = outFile;
-        getRecipes(); //create arraylist for recipes (node # = recipeList index)
-        generateInLinkList(); //create adjacency list to store edges
-        generateOutLinkList();
+        loadGraph(); //intern recipes (node # = dictionary id) and build the adjacency arrays
+    }
+
+    //pagerank obj over a graph that has already been loaded
+    public Matrix(LinkGraph graph, String detailsFile){
+        this.dir = new File(System.getProperty("user.dir"));
+        this.detailedFile = new File(detailsFile);
+        this.outputPRFile = new File(dir.getPath()+"/detailedPR.csv");
+        this.graph = graph;
+        this.recipeCount = graph.getNodeCount();
+    }
+
+    //load the graph from a memory-mapped binary graph file instead of the csv files
+    public static Matrix fromBinary(String graphFileName, String detailsFile) throws IOException{
+        return new Matrix(BinaryGraphFile.read(new File(graphFileName)), detailsFile);
     }
 
     public int getRecipeCount(){
         return recipeCount;
     }
 
-    //create adj matrix as an arraylist of lists based on inlinks
-    private void generateInLinkList(){
-        try{
-            Scanner sc = new Scanner(inlinkFile);
-            String line;
-            String [] splitLine; // splitLine[0]: URL, splitLine[1]: outlink
-            sc.nextLine(); //skip header
-            while(sc.hasNextLine()){
-                line = sc.nextLine();
-                splitLine = line.split(",");
-                int aIndex = recipeList.indexOf(splitLine[0]);
-                int bIndex = recipeList.indexOf(splitLine[1]);
-
-                //add "edge" between recipes based on inklinks
-                if(!adjInList.get(aIndex).contains(bIndex)){
-                    adjInList.get(aIndex).add(bIndex);
-                }
-            }
-        }
-        catch(FileNotFoundException f){
-            System.out.println("Couldn't find file!");
-        }
+    public PageRankConfig getConfig(){
+        return config;
     }
 
-    //create adj matrix as an arraylist of lists based on outlinks
-    private void generateOutLinkList(){
-        try{
-            Scanner sc = new Scanner(outlinkFile);
-            String line;
-            String [] splitLine; // splitLine[0]: URL, splitLine[1]: outlink
-            sc.nextLine(); //skip header
-            while(sc.hasNextLine()){
-                line = sc.nextLine();
-                splitLine = line.split(",");
-
-                //check that outlink recipes are in our unique list of recipes
-                if(recipeList.contains(splitLine[0]) && recipeList.contains(splitLine[1])){
-                    int aIndex = recipeList.indexOf(splitLine[0]);
-                    int bIndex = recipeList.indexOf(splitLine[1]);
-
-                    //add to that arraylist in the list of lists
-                    if(!adjOutList.get(aIndex).contains(bIndex)){
-                        adjOutList.get(aIndex).add(bIndex);
-                    }
-                }
-            }
-        }
-        catch(FileNotFoundException f){
-            System.out.println("Couldn't find file!");
+    public void setConfig(PageRankConfig config){
+        this.config = config;
+    }
+
+    public int getTopK(){
+        return topK;
+    }
+
+    //number of top recipes sortPageRank displays and writes to detailedPR.csv
+    public void setTopK(int topK){
+        if(topK < 1){
+            throw new IllegalArgumentException("Top K must be at least 1: " + topK);
         }
+        this.topK = topK;
     }
 
-    //add unique recipes to an arraylist --> index in recipeList = node in the list
-    private void getRecipes(){
-        String str;
-        String[] sp;
-
-        try {
-            Scanner sc = new Scanner(inlinkFile);
-            sc.nextLine(); //skip header line
-            while (sc.hasNextLine()) {
-                str = sc.nextLine();
-                sp = str.split(",");
-                if (!(recipeList.contains(sp[0]))) {
-                    recipeList.add(sp[0]); //add r to the recipe list
-                    ArrayList<Integer> vertexList1 = new ArrayList<>();
-                    adjInList.add(vertexList1); //add new list according to recipe index
-                    adjOutList.add(vertexList1);
-                }
-                if (!(recipeList.contains(sp[1]))) {
-                    recipeList.add(sp[1]); //add r to the recipe list
-                    ArrayList<Integer> vertexList2 = new ArrayList<>();
-                    adjInList.add(vertexList2); //add new list according to recipe index
-                    adjOutList.add(vertexList2);
-                }//endif
-            } //end while
-            this.recipeCount = recipeList.size();
-        }//end try
-        catch(FileNotFoundException f){
+    //directory detailedPR.csv is written to (the working directory by default)
+    public void setOutputDirectory(File dir){
+        this.dir = dir;
+        this.outputPRFile = new File(dir, "detailedPR.csv");
+    }
+
+    public LinkGraph getGraph(){
+        return graph;
+    }
+
+    public void setRankCache(RankCache rankCache){
+        this.rankCache = rankCache;
+    }
+
+    //build the inlink and outlink adjacency arrays from the csv files
+    private void loadGraph(){
+        try{
+            this.graph = LinkGraph.fromCsv(inlinkFile, outlinkFile);
+        }
+        catch(IOException e){
             System.out.println("Couldn't find file!");
+            this.graph = new GraphBuilder().build(new UrlDictionary()); //empty graph
         }
+        this.recipeCount = graph.getNodeCount();
     }
 
     //to display the inlink adjacency list
     public void showInAdjList(){
         System.out.println("Generated Adjacency List for Inlinks");
         System.out.print("========================");
-        for(int n=0; n<recipeList.size(); n++){ //iterate through recipe list
+        int[] offsets = graph.getInOffsets();
+        int[] sources = graph.getInSources();
+        for(int n=0; n<recipeCount; n++){ //iterate through recipes
             System.out.print("\n" + n + ": ");
-            for(int d=0; d<adjInList.get(n).size(); d++){ //match recipe index in list to adjList
-                System.out.print(adjInList.get(n).get(d) + " " );
+            for(int d=offsets[n]; d<offsets[n+1]; d++){ //walk this recipe's row
+                System.out.print(sources[d] + " " );
             }
         }
     }
@@ -143,175 +134,199 @@ public class Matrix {
     public void showOutAdjList(){
         System.out.println("Generated Adjacency List for Outlinks");
         System.out.print("========================");
-        for(int n=0; n<recipeList.size(); n++){ //iterate through recipe list
+        int[] offsets = graph.getOutOffsets();
+        int[] targets = graph.getOutTargets();
+        for(int n=0; n<recipeCount; n++){ //iterate through recipes
             System.out.print("\n" + n + ": ");
-            for(int d=0; d<adjOutList.get(n).size(); d++){ //match recipe index in list to adjList
-                System.out.print(adjOutList.get(n).get(d) + " " );
+            for(int d=offsets[n]; d<offsets[n+1]; d++){ //walk this recipe's row
+                System.out.print(targets[d] + " " );
             }
         }
     }
 
     //public method retrieves the final array of ordered pagerank
     public void PageRank() {
-        final double initial = 1 / (double) recipeCount;
-        System.out.println("Iteration 0 --> All PageRanks set to initial value (1/number of unique recipes): "+initial);
-        double[] initRanks = new double[recipeCount];
-        final int iter= 0;
-
-        //initialize ranks to 1/recipeCount at iteration 0
-        for(int i=0; i<initRanks.length; i++){
-            initRanks[i]=initial;
+        PageRank(null);
+          }//end PageRank
+
+    //personalized PageRank: the random surfer jumps according to teleport (null = uniform over all recipes)
+    public void PageRank(double[] teleport) {
+        long cacheKey = 0;
+        double[] initRanks = null;
+        if(rankCache != null){
+            cacheKey = RankCache.key(graph, config, teleport);
+            double[] cached = rankCache.get(cacheKey, graph);
+            if(cached != null){
+                System.out.println("Found the PageRanks for this graph in the rank cache");
+                this.lastRanks = cached;
+                sortPageRank(cached);
+                return;
+            }
+            initRanks = rankCache.warmStart(graph, config, teleport);
+            if(initRanks != null){
+                System.out.println("Iteration 0 --> PageRanks start from the closest cached run");
+            }
+        }
+        if(initRanks == null){
+            final double initial = 1 / (double) recipeCount;
+            System.out.println("Iteration 0 --> All PageRanks set to initial value (1/number of unique recipes): "+initial);
+            initRanks = new double[recipeCount];
+
+            //initialize ranks to 1/recipeCount at iteration 0
+            for(int i=0; i<initRanks.length; i++){
+                initRanks[i]=initial;
+            }
         }
 
         //get final ordered array of PageRanks
-        double[] convergedPr = calcPR(0, initRanks, initial, false );
+        double[] convergedPr = calcPR(initRanks, teleport);
+        this.lastRanks = convergedPr;
+        if(rankCache != null){
+            rankCache.put(cacheKey, graph, config, teleport, convergedPr);
+        }
 
-        //call sortPageRank to display top 100 PRs
+        //call sortPageRank to display top K PRs
         sortPageRank(convergedPr);
-          }//end PageRank
+    }
+
+    //PageRank that favours well-reviewed recipes: jumps are weighted by "would make again" % and tips count
+    public void qualityPageRank() {
+        PageRank(TeleportVectors.fromQuality(getDetails()));
+    }
+
+    //top K recipes for each /topic page, all computed in one batched run over the graph
+    public Map<String, RankedList> topicPageRanks(List<String> topicUrls) {
+        double[][] teleports = new double[topicUrls.size()][];
+        for(int t=0; t<teleports.length; t++){
+            teleports[t] = TeleportVectors.fromTopic(graph, topicUrls.get(t));
+        }
+        PageRankResult[] results = new BatchPageRank(graph, config).run(teleports);
+
+        Map<String, RankedList> rankings = new LinkedHashMap<>();
+        for(int t=0; t<results.length; t++){
+            rankings.put(topicUrls.get(t), TopK.select(results[t].getRanks(), topK));
+        }
+        System.out.println("Ranked " + topicUrls.size() + " topics in " + (results.length > 0 ? results[0].getIterations() : 0)
+                + " batched iterations");
+        return rankings;
+    }
+
+    //apply a recrawl's link changes to this graph and rerank starting from the previous ranks
+    public void PageRank(EdgeDelta delta, RankVector previous) {
+        this.graph = delta.applyTo(graph);
+        this.recipeCount = graph.getNodeCount();
+        this.details = null; //node ids changed, reload on next use
+        incrementalPR(previous, delta.affectedNodes(graph));
+    }
+
+    //rerank this graph, a recrawl of previousGraph, starting from the ranks computed for previousGraph
+    public void PageRank(LinkGraph previousGraph, RankVector previous) {
+        EdgeDelta delta = EdgeDelta.between(previousGraph, graph);
+        System.out.println("Recrawl changed " + delta.getAdded().size() + " links in, " + delta.getRemoved().size()
+                + " links out and found " + delta.getNewRecipes().size() + " new recipes");
+        incrementalPR(previous, delta.affectedNodes(graph));
+    }
+
+    private void incrementalPR(RankVector previous, int[] affected) {
+        double[] warmRanks = previous.alignTo(graph.getDictionary(), Double.NaN);
+        IncrementalPageRank incremental = new IncrementalPageRank(graph, config);
+        PageRankResult result = incremental.update(warmRanks, affected);
+        System.out.println("Incremental update from " + affected.length + " changed recipes took " + result.getIterations()
+                + " sweeps and " + incremental.getNodeUpdates() + " node updates (residual " + result.getDelta() + ")"
+                + (incremental.fellBack() ? ", finishing with a warm full run" : ""));
+        this.lastRanks = result.getRanks();
+        sortPageRank(lastRanks);
+    }
+
+    //ranks from the last PageRank run, or null if PageRank hasn't run yet
+    public double[] getRanks(){
+        return lastRanks;
+    }
+
+    //persist the last ranks so the next recrawl can warm-start from them
+    public void saveRanks(String fileName) throws IOException{
+        RankVector.of(graph, lastRanks).save(new File(fileName));
+    }
 
     /*
-    * Method: calcPR() implements the heart of the algorithm for PageRank based on the Random Surfer Model
+    * Method: calcPR() implements the heart of the algorithm for PageRank based on the Random Surfer Model.
+    * The iterations run in a PageRankEngine loop using the damping, tolerance and iteration cap from config.
     *
     * Parameters:
-    * -iteration = iteration number for the number of times PageRank has been calculated
-    * -lastCalculatedPR = array storing last computed PageRanks
-    * -lastCalculatedSum = sum of the last array of PageRanks - to check if 1.0 has been reached
-    * -conv = if conv is true, then the values have stopped changing
+    * -initialRanks = array storing the PageRanks to start iterating from
+    * -teleport = where the random surfer jumps to, summing to 1 (null = uniform 1/recipeCount)
     *
     * */
-    private double[] calcPR(int iteration, double[] lastCalculatedPR, double lastCalculatedSum, boolean conv){
-
-            //base case: iteration passed 1, the sum of the PageRanks is 1, and the PageRank values have converged
-            if(lastCalculatedSum>=1. && lastCalculatedSum<=1.000000000001 && conv==true){
-                System.out.println("Converged at Iteration: "+iteration + " with PageRank sum of: " + lastCalculatedSum);
-                return lastCalculatedPR;
-            }
-
-            else {
-                final int iter = ++iteration; //iteration number
-                double[] ranks = new double[lastCalculatedPR.length]; //hold calculated ranks
-                int numIn; //number of inlinks
-                final double lambda = 0.2; //for Random Surfer Model
-                final double errorMargin = .00001; //for convergence
-                double inPRsummation, sumPR=0; //summation for Random Surfer Model
-
-                //num outlinks is the length of the list in the recipe list
-                for (int j = 0; j < recipeList.size(); j++) { //for every recipe
-                    numIn = adjInList.get(j).size(); //get num for this recipe, j
-                    inPRsummation = 0; //to sum PageRanks of inlinks
-                        for (int k = 0; k < numIn; k++) { //for every inlink
-                            int linkedIndex = adjOutList.get(j).get(k); //get index for outlink
-
-                            //sum every page rank for each inlink: PageRank of inlink from last iteration/num outlinks
-                            inPRsummation += (lastCalculatedPR[linkedIndex])/(adjOutList.get(linkedIndex).size());
-                        }
-                    //calculate rank based on Random Surfer Model
-                    ranks[j] = (lambda / (double) recipeCount) + (1 - lambda) * (inPRsummation);
-                    }
-                    //get sum of pageranks to check if they sum to 1
-                    sumPR=(Arrays.stream(ranks).sum());
-
-                //check convergence
-                Boolean converges = true;
-                for(int b=0; b<ranks.length; b++){
-                    //if values differ by more than .00001
-                    if(Math.abs(ranks[b]-lastCalculatedPR[b])>=errorMargin){
-                        converges = false; //the values are still changing drastically from one iteration to next
-                        break; //exit loop
-                    }
-                }
-
-                //print status: iteration and sum of PageRank array at this iteration
-                System.out.println("\nIteration: " + iter + " --> Sum PageRank = " + sumPR );
-
-                //if the values have converged
-                if(converges==true){
-                    System.out.println("\nConverged!");
-                    //this call will reach the base case
-                    return calcPR(iter, ranks, sumPR, true);
-                }
-
-                //if the values have not converged
-                else {
-                    System.out.println("\nNot all values have converged.");
-                    //run PageRank again
-                    return calcPR(iter, ranks, sumPR, false);
-                    }
-
-                }//end else
-            }//end calcPR
-
-        //displays the top 100 recipes according to calculated PageRanks
-        public HashMap<String, Double> sortPageRank(double[] ranks){
-            HashMap<String, Double > calculatedRanks = new LinkedHashMap<>(); //map recipe and pagerank
-            HashMap<String, Double> sortedRanks = new LinkedHashMap<>(); //for sorted ranks and recipes
-
-            for(int i=0; i<ranks.length; i++){
-                calculatedRanks.put(recipeList.get(i), ranks[i]); //add to map
-            }
-
-            //sort the unsorted map using stream class, in descending order
-            calculatedRanks.entrySet().stream()
-                    .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder())) //sort in descending order
-                    .forEachOrdered(x -> sortedRanks.put(x.getKey(), x.getValue())); //placed sorted in sortedRanks map
-
-            System.out.println("================================= Displaying Top 100 Recipes Based on PageRank ========================================");
-            //print all the ranks to test
-
-            //print top 100
-            int count =1;
-            Set<String> recipeKeys = sortedRanks.keySet();
-            for(String rKey: recipeKeys){
-                if(count<=100){
-                    System.out.println("("+count+") PageRank: " + sortedRanks.get(rKey) + "\tRecipe Link: "+ rKey);
-                    count++;
-                }
-            }//end loop to print top 100
-            makePageRankOutFile(sortedRanks);
-            return sortedRanks;
+    private double[] calcPR(double[] initialRanks, double[] teleport){
+        PageRankResult result = new PageRankEngine(graph, config).run(initialRanks, teleport);
+        double sumPR = Arrays.stream(result.getRanks()).sum();
+        if(result.isConverged()){
+            System.out.println("Converged at Iteration: "+result.getIterations() + " with PageRank sum of: " + sumPR
+                    + " (" + config.getSolver() + ", " + String.format("%.1f", result.getElapsedMillis()) + " ms)");
+        }
+        else{
+            System.out.println("Stopped after " + result.getIterations() + " iterations without converging (L1 change "
+                    + result.getDelta() + ")");
+        }
+        return result.getRanks();
+    }//end calcPR
+
+        //displays the top K recipes (100 by default) according to calculated PageRanks
+        public RankedList sortPageRank(double[] ranks){
+            //select the head with a bounded heap instead of sorting every recipe
+            RankedList top = config.getParallelism() > 1
+                    ? TopK.selectParallel(ranks, topK, config.getParallelism())
+                    : TopK.select(ranks, topK);
+
+            System.out.println("================================= Displaying Top " + topK + " Recipes Based on PageRank ========================================");
+
+            //print top K
+            for(int i=0; i<top.size(); i++){
+                System.out.println("("+(i+1)+") PageRank: " + top.getScore(i) + "\tRecipe Link: "+ graph.getUrl(top.getNode(i)));
+            }//end loop to print top K
+            makePageRankOutFile(top);
+            return top;
         }//end sortPageRank
 
     //create file for page ranks, would make again and tips
-    public void makePageRankOutFile(HashMap<String, Double> hm){
-        HashMap<String, String> tipsMap = new HashMap<>();//hashmap for tips
-        HashMap<String, String> wouldMakeMap = new HashMap<>();//hashmap for would make again
-        String line;
-        String[] splitDetail;
+    public void makePageRankOutFile(RankedList top){
+        RecipeDetails recipeDetails = getDetails(); //parsed once, then indexed by node
         StringBuilder sb = new StringBuilder();
-        int count = 1;
-        Set<String> recipeKeys = hm.keySet();
 
-        try{
-            FileWriter fw = new FileWriter(this.outputPRFile, true);
+        //start the file over on every run instead of appending to the last one
+        try(FileWriter fw = new FileWriter(this.outputPRFile)){
             fw.write("PageRank,Recipe URL,\"Would Make Again\" %, Tips Count\n");
-            //read the contents of the details file
-
-            //check
-            Scanner sc = new Scanner(detailedFile);
-            sc.nextLine(); //skip header
-            while(sc.hasNextLine()){
-                line=sc.nextLine();
-                splitDetail=line.split(","); //0: recipe title, 1:url, 2:would, 3: tips count
-                if(recipeList.contains(splitDetail[1])){
-                    tipsMap.put(splitDetail[1], splitDetail[3]); //add recipe and tip count
-                    wouldMakeMap.put(splitDetail[1], splitDetail[2]); //add recipe and make again %
-                }
-            }
 
-            for(String rKey: recipeKeys){
-                if(count<=100){
-                        sb.append(hm.get(rKey)).append(",").append(rKey).append(",").append(wouldMakeMap.get(rKey))
-                           .append(",").append(tipsMap.get(rKey)).append("\n");
-                        count++;
-                }
-            }//end loop to print top 100
+            for(int i=0; i<top.size(); i++){
+                int node = top.getNode(i);
+                sb.append(top.getScore(i)).append(",").append(CsvFormat.escape(graph.getUrl(node))).append(",")
+                   .append(detailValue(recipeDetails.getWouldMakeAgain(node))).append(",")
+                   .append(detailValue(recipeDetails.getTipsCount(node))).append("\n");
+            }//end loop to print top K
 
             fw.write(sb.toString());
-            fw.close();
         }
         catch(IOException e){
             e.printStackTrace();
             }
         }//end makePageRankOutFile
+
+    //missing details are left blank
+    private static String detailValue(int value){
+        return value == RecipeDetails.MISSING ? "" : String.valueOf(value);
+    }
+
+    //the details.csv metadata keyed by node, loaded the first time it's needed
+    public RecipeDetails getDetails(){
+        if(details == null){
+            try{
+                details = RecipeDetails.load(detailedFile, graph.getDictionary());
+            }
+            catch(IOException e){
+                System.out.println("Couldn't find file!");
+                details = RecipeDetails.empty(recipeCount);
+            }
+        }
+        return details;
+    }
     }//end Matrix
@@ -0,0 +1,573 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * OutOfCorePageRank runs PageRank on a graph that doesn't fit in the heap, straight from a BinaryGraphFile.
+ * The graph's inlinks are first partitioned into destination-sorted blocks on disk, each one a run of
+ * consecutive recipes with their in-degrees followed by the sources of their inlinks:
+ *
+ *   block:  int magic "SHBB", int firstNode, int nodeCount, int edgeCount,
+ *           int[nodeCount] in-degrees, int[edgeCount] inlink sources
+ *
+ * Every iteration reads the blocks in order with plain sequential reads into one reusable buffer, so the only
+ * things resident are that buffer, the out-degrees and two rank vectors (the same double buffering as
+ * PageRankEngine). With mapRanks the out-degrees and rank vectors are memory-mapped files in the block
+ * directory too, leaving the OS to page them, and the final ranks stay in their file: run() hands back no
+ * rank array, and top(k) streams the best recipes out of the file instead. Vectors are split into segments
+ * of 2^27 values, so a mapped vector isn't limited to what one MappedByteBuffer can address. The bytes read,
+ * blocks and read time of every iteration are tracked, and printed with the L1 change when the config is verbose.
+ *
+ * The math matches PageRankEngine with a uniform teleport, so both give the same ranks. To save a vector,
+ * the source ranks are turned into rank / out-degree in place before each pull.
+ *
+ * Run it with: java OutOfCorePageRank graph.bin <block dir> [--map-ranks]
+ * */
+public class OutOfCorePageRank {
+    private static final int BLOCK_MAGIC = 0x53484242; //"SHBB"
+    private static final int BLOCK_HEADER_BYTES = 4 * Integer.BYTES;
+    private static final int STREAM_BUFFER_BYTES = 1 << 20;
+    private static final int SEGMENT_SHIFT = 27; //values per vector segment, 1GB of doubles
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+    private static final int VECTOR_BYTES_PER_NODE = 2 * Double.BYTES + Integer.BYTES; //two rank vectors, out-degree
+
+    private final PageRankConfig config;
+    private final File blockDir;
+    private final boolean mapRanks;
+    private final int nodeCount;
+    private final long edgeCount;
+    private final int maxBlockInts; //largest block minus its header, in ints
+    private final List<File> blocks = new ArrayList<>();
+    private double[] lastRanks; //final ranks of the last run on the heap, null with mapRanks
+    private File lastRanksFile; //final ranks of the last run with mapRanks, native order doubles
+
+    //I/O of the last run
+    private final List<Long> bytesPerIteration = new ArrayList<>();
+    private final List<Long> readNanosPerIteration = new ArrayList<>();
+
+    /*
+     * Partitions graphFile into blocks of at most blockEdges inlinks (and blockEdges recipes) in blockDir.
+     * Partitioning streams the file once, so it needs no more memory than an iteration does.
+     * */
+    public OutOfCorePageRank(File graphFile, File blockDir, int blockEdges, boolean mapRanks, PageRankConfig config)
+            throws IOException {
+        if (blockEdges <= 0) {
+            throw new IllegalArgumentException("Block size must be positive, got " + blockEdges);
+        }
+        this.config = config;
+        this.blockDir = blockDir;
+        this.mapRanks = mapRanks;
+        blockDir.mkdirs();
+
+        BinaryGraphFile.Layout layout = BinaryGraphFile.readLayout(graphFile);
+        this.nodeCount = layout.getNodeCount();
+        this.edgeCount = layout.getEdgeCount();
+        long vectorBytes = (long) nodeCount * VECTOR_BYTES_PER_NODE;
+        if (!mapRanks && vectorBytes > Runtime.getRuntime().maxMemory()) {
+            throw new IllegalArgumentException(String.format("%d recipes need %.0f MB of heap for the rank vectors "
+                    + "and out-degrees but the heap is %.0f MB, use mapRanks", nodeCount, vectorBytes / 1e6,
+                    Runtime.getRuntime().maxMemory() / 1e6));
+        }
+
+        try (FileChannel in = FileChannel.open(graphFile.toPath(), StandardOpenOption.READ)) {
+            writeOutDegrees(new IntReader(in, layout.getOutOffsetsPosition()));
+            this.maxBlockInts = writeBlocks(new IntReader(in, layout.getInOffsetsPosition()),
+                    new IntReader(in, layout.getInSourcesPosition()), blockEdges);
+        }
+    }
+
+    public OutOfCorePageRank(File graphFile, File blockDir, PageRankConfig config) throws IOException {
+        this(graphFile, blockDir, 1 << 22, false, config);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java OutOfCorePageRank <graph.bin> <block dir> [--map-ranks]");
+            return;
+        }
+        boolean map = args.length > 2 && args[2].equals("--map-ranks");
+        File graphFile = new File(args[0]);
+        OutOfCorePageRank pageRank = new OutOfCorePageRank(graphFile, new File(args[1]), 1 << 22, map,
+                new PageRankConfig().setVerbose(true));
+        PageRankResult result = pageRank.run();
+        System.out.println("Converged at Iteration: " + result.getIterations() + " (L1 change " + result.getDelta() + ")");
+        System.out.println(pageRank.ioSummary());
+
+        RankedList top = pageRank.top(100);
+        String[] urls = BinaryGraphFile.readUrls(graphFile, top.getNodes());
+        for (int i = 0; i < top.size(); i++) {
+            System.out.println("(" + (i + 1) + ") PageRank: " + top.getScore(i) + "\tRecipe Link: " + urls[i]);
+        }
+    }
+
+    private File outDegreeFile() {
+        return new File(blockDir, "outdegrees.i32");
+    }
+
+    //out-degree of every node, from the difference of consecutive outOffsets
+    private void writeOutDegrees(IntReader outOffsets) throws IOException {
+        try (IntWriter out = new IntWriter(outDegreeFile())) {
+            int previous = outOffsets.next();
+            for (int i = 0; i < nodeCount; i++) {
+                int offset = outOffsets.next();
+                out.write(offset - previous);
+                previous = offset;
+            }
+        }
+    }
+
+    //cut the inlink CSR rows into blocks, returns the size of the biggest block in ints
+    private int writeBlocks(IntReader inOffsets, IntReader inSources, int blockEdges) throws IOException {
+        int[] degrees = new int[Math.min(blockEdges, Math.max(1, nodeCount))];
+        int maxInts = 0;
+        int first = 0;
+        int previous = inOffsets.next();
+        while (first < nodeCount) {
+            //take recipes until the next one would push the block over blockEdges
+            int count = 0;
+            long edges = 0;
+            while (first + count < nodeCount && count < degrees.length) {
+                int offset = inOffsets.peek();
+                int degree = offset - previous;
+                if (count > 0 && edges + degree > blockEdges) {
+                    break;
+                }
+                inOffsets.next();
+                previous = offset;
+                degrees[count++] = degree;
+                edges += degree;
+            }
+
+            File block = new File(blockDir, String.format("block-%05d.bin", blocks.size()));
+            try (IntWriter out = new IntWriter(block)) {
+                out.write(BLOCK_MAGIC);
+                out.write(first);
+                out.write(count);
+                out.write((int) edges);
+                for (int i = 0; i < count; i++) {
+                    out.write(degrees[i]);
+                }
+                for (long e = 0; e < edges; e++) {
+                    out.write(inSources.next());
+                }
+            }
+            blocks.add(block);
+            maxInts = (int) Math.max(maxInts, count + edges);
+            first += count;
+        }
+        return maxInts;
+    }
+
+    //the ranks of the last run are left in memory (or in their file with mapRanks) for top(k); with mapRanks
+    //the result holds no rank array
+    public PageRankResult run() throws IOException {
+        bytesPerIteration.clear();
+        readNanosPerIteration.clear();
+        lastRanks = null;
+        lastRanksFile = null;
+        final double damping = config.getDamping();
+
+        try (RandomAccessFile degreeFile = new RandomAccessFile(outDegreeFile(), "r");
+             RankVectors vectors = new RankVectors()) {
+            IntVector outDegrees = mapRanks
+                    ? IntVector.map(degreeFile.getChannel(), nodeCount)
+                    : IntVector.read(degreeFile.getChannel(), nodeCount);
+            DoubleVector ranks = vectors.get(0);
+            DoubleVector next = vectors.get(1);
+            for (int i = 0; i < nodeCount; i++) {
+                ranks.put(i, 1 / (double) nodeCount);
+            }
+
+            ByteBuffer blockBuffer = ByteBuffer.allocateDirect(BLOCK_HEADER_BYTES + maxBlockInts * Integer.BYTES)
+                    .order(ByteOrder.nativeOrder());
+            int iteration = 0;
+            double delta = Double.MAX_VALUE;
+            while (iteration < config.getMaxIterations() && delta >= config.getTolerance()) {
+                iteration++;
+
+                //turn ranks into the share passed along each outlink, dangling recipes keep their rank
+                double dangling = 0;
+                for (int i = 0; i < nodeCount; i++) {
+                    int outDegree = outDegrees.get(i);
+                    if (outDegree == 0) {
+                        dangling += ranks.get(i);
+                    } else {
+                        ranks.put(i, ranks.get(i) / outDegree);
+                    }
+                }
+                final double base = ((1 - damping) + damping * dangling) / nodeCount;
+
+                //stream the blocks and pull the shares in over every inlink
+                delta = 0;
+                long bytes = 0;
+                long readNanos = 0;
+                for (File block : blocks) {
+                    long start = System.nanoTime();
+                    IntBuffer ints = readBlock(block, blockBuffer);
+                    readNanos += System.nanoTime() - start;
+                    bytes += blockBuffer.limit();
+
+                    int first = ints.get(1);
+                    int count = ints.get(2);
+                    int source = BLOCK_HEADER_BYTES / Integer.BYTES + count;
+                    for (int j = first; j < first + count; j++) {
+                        int inDegree = ints.get(BLOCK_HEADER_BYTES / Integer.BYTES + j - first);
+                        double sum = 0;
+                        for (int k = 0; k < inDegree; k++) {
+                            sum += ranks.get(ints.get(source++));
+                        }
+                        double rank = base + damping * sum;
+                        int outDegree = outDegrees.get(j);
+                        double old = outDegree == 0 ? ranks.get(j) : ranks.get(j) * outDegree;
+                        delta += Math.abs(rank - old);
+                        next.put(j, rank);
+                    }
+                }
+                bytesPerIteration.add(bytes);
+                readNanosPerIteration.add(readNanos);
+
+                DoubleVector swap = ranks;
+                ranks = next;
+                next = swap;
+
+                if (config.isVerbose()) {
+                    System.out.println(String.format("Iteration: %d --> L1 change = %s, read %.1f MB from %d blocks in %.0f ms (%.0f MB/s)",
+                            iteration, delta, bytes / 1e6, blocks.size(), readNanos / 1e6, megabytesPerSecond(bytes, readNanos)));
+                }
+            }
+
+            if (mapRanks) {
+                ranks.force();
+                lastRanksFile = vectors.fileOf(ranks);
+            } else {
+                lastRanks = ranks.array();
+            }
+            return new PageRankResult(lastRanks, iteration, delta, delta < config.getTolerance());
+        }
+    }
+
+    //the k best recipes of the last run; with mapRanks they are streamed out of the rank file a chunk at a time
+    public RankedList top(int k) throws IOException {
+        if (lastRanks != null) {
+            return TopK.select(lastRanks, k);
+        }
+        if (lastRanksFile == null) {
+            throw new IllegalStateException("run() hasn't finished yet");
+        }
+        RankedList best = new RankedList(new int[0], new double[0]);
+        double[] chunk = new double[STREAM_BUFFER_BYTES / Double.BYTES];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(STREAM_BUFFER_BYTES).order(ByteOrder.nativeOrder());
+        try (FileChannel channel = FileChannel.open(lastRanksFile.toPath(), StandardOpenOption.READ)) {
+            for (int first = 0; first < nodeCount; first += chunk.length) {
+                int count = Math.min(chunk.length, nodeCount - first);
+                readFully(channel, buffer, (long) first * Double.BYTES, count * Double.BYTES);
+                buffer.asDoubleBuffer().get(chunk, 0, count);
+                RankedList chunkBest = TopK.select(chunk, 0, count, k);
+                int[] nodes = chunkBest.getNodes();
+                for (int i = 0; i < nodes.length; i++) {
+                    nodes[i] += first;
+                }
+                best = TopK.merge(best, chunkBest, k);
+            }
+        }
+        return best;
+    }
+
+    //bytes bytes of channel from position into buffer, flipped for reading
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int bytes) throws IOException {
+        buffer.clear();
+        buffer.limit(bytes);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Vector file ends early");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    //read a whole block into buffer with sequential reads and check its header
+    private static IntBuffer readBlock(File block, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(block.toPath(), StandardOpenOption.READ)) {
+            buffer.limit((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                //keep reading
+            }
+        }
+        buffer.flip();
+        IntBuffer ints = buffer.asIntBuffer();
+        if (ints.get(0) != BLOCK_MAGIC) {
+            throw new IOException(block.getPath() + " is not a PageRank block");
+        }
+        return ints;
+    }
+
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        return nanos == 0 ? 0 : bytes / 1e6 / (nanos / 1e9);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    //bytes of block data read by each iteration of the last run
+    public List<Long> getBytesPerIteration() {
+        return bytesPerIteration;
+    }
+
+    public List<Long> getReadNanosPerIteration() {
+        return readNanosPerIteration;
+    }
+
+    public String ioSummary() {
+        long bytes = 0;
+        long nanos = 0;
+        for (int i = 0; i < bytesPerIteration.size(); i++) {
+            bytes += bytesPerIteration.get(i);
+            nanos += readNanosPerIteration.get(i);
+        }
+        int iterations = Math.max(1, bytesPerIteration.size());
+        long vectorBytes = (long) nodeCount * VECTOR_BYTES_PER_NODE;
+        return String.format("%d recipes, %d links in %d blocks: %.1f MB read per iteration, %.0f ms reading per iteration (%.0f MB/s), "
+                        + "%.1f MB of rank vectors and out-degrees %s",
+                nodeCount, edgeCount, blocks.size(), bytes / 1e6 / iterations, nanos / 1e6 / iterations,
+                megabytesPerSecond(bytes, nanos), vectorBytes / 1e6, mapRanks ? "mapped" : "on the heap");
+    }
+
+    /*
+     * The two rank vectors of a run, either heap arrays or files in the block directory mapped read-write.
+     * */
+    private class RankVectors implements AutoCloseable {
+        private final DoubleVector[] vectors = new DoubleVector[2];
+        private final File[] vectorFiles = new File[2];
+        private final List<RandomAccessFile> files = new ArrayList<>();
+
+        RankVectors() throws IOException {
+            for (int v = 0; v < vectors.length; v++) {
+                if (mapRanks) {
+                    vectorFiles[v] = new File(blockDir, "ranks-" + v + ".f64");
+                    RandomAccessFile file = new RandomAccessFile(vectorFiles[v], "rw");
+                    files.add(file);
+                    file.setLength((long) nodeCount * Double.BYTES);
+                    vectors[v] = DoubleVector.map(file.getChannel(), nodeCount);
+                } else {
+                    vectors[v] = DoubleVector.allocate(nodeCount);
+                }
+            }
+        }
+
+        DoubleVector get(int v) {
+            return vectors[v];
+        }
+
+        File fileOf(DoubleVector vector) {
+            return vectorFiles[vector == vectors[0] ? 0 : 1];
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RandomAccessFile file : files) {
+                file.close();
+            }
+        }
+    }
+
+    /*
+     * nodeCount doubles in segments of 2^SEGMENT_SHIFT, views of one heap array or separate mappings of a file.
+     * */
+    private static class DoubleVector {
+        private final DoubleBuffer[] segments;
+        private final double[] array; //backing array of a heap vector, null if mapped
+        private final MappedByteBuffer[] mappings; //null on the heap
+
+        private DoubleVector(DoubleBuffer[] segments, double[] array, MappedByteBuffer[] mappings) {
+            this.segments = segments;
+            this.array = array;
+            this.mappings = mappings;
+        }
+
+        static DoubleVector allocate(int length) {
+            double[] array = new double[length];
+            DoubleBuffer[] segments = new DoubleBuffer[segmentCount(length)];
+            for (int s = 0; s < segments.length; s++) {
+                segments[s] = DoubleBuffer.wrap(array, s << SEGMENT_SHIFT, segmentLength(length, s)).slice();
+            }
+            return new DoubleVector(segments, array, null);
+        }
+
+        static DoubleVector map(FileChannel channel, int length) throws IOException {
+            DoubleBuffer[] segments = new DoubleBuffer[segmentCount(length)];
+            MappedByteBuffer[] mappings = new MappedByteBuffer[segments.length];
+            for (int s = 0; s < segments.length; s++) {
+                mappings[s] = channel.map(FileChannel.MapMode.READ_WRITE, ((long) s << SEGMENT_SHIFT) * Double.BYTES,
+                        (long) segmentLength(length, s) * Double.BYTES);
+                segments[s] = mappings[s].order(ByteOrder.nativeOrder()).asDoubleBuffer();
+            }
+            return new DoubleVector(segments, null, mappings);
+        }
+
+        double get(int i) {
+            return segments[i >>> SEGMENT_SHIFT].get(i & SEGMENT_MASK);
+        }
+
+        void put(int i, double value) {
+            segments[i >>> SEGMENT_SHIFT].put(i & SEGMENT_MASK, value);
+        }
+
+        double[] array() {
+            return array;
+        }
+
+        //write a mapped vector's pages back to its file
+        void force() {
+            if (mappings != null) {
+                for (MappedByteBuffer mapping : mappings) {
+                    mapping.force();
+                }
+            }
+        }
+    }
+
+    /*
+     * nodeCount ints in segments of 2^SEGMENT_SHIFT, like DoubleVector; only ever read.
+     * */
+    private static class IntVector {
+        private final IntBuffer[] segments;
+
+        private IntVector(IntBuffer[] segments) {
+            this.segments = segments;
+        }
+
+        //a heap copy of the file, read through a small buffer
+        static IntVector read(FileChannel channel, int length) throws IOException {
+            int[] array = new int[length];
+            ByteBuffer buffer = ByteBuffer.allocateDirect(STREAM_BUFFER_BYTES).order(ByteOrder.nativeOrder());
+            for (int first = 0; first < length; first += STREAM_BUFFER_BYTES / Integer.BYTES) {
+                int count = Math.min(STREAM_BUFFER_BYTES / Integer.BYTES, length - first);
+                readFully(channel, buffer, (long) first * Integer.BYTES, count * Integer.BYTES);
+                buffer.asIntBuffer().get(array, first, count);
+            }
+            IntBuffer[] segments = new IntBuffer[segmentCount(length)];
+            for (int s = 0; s < segments.length; s++) {
+                segments[s] = IntBuffer.wrap(array, s << SEGMENT_SHIFT, segmentLength(length, s)).slice();
+            }
+            return new IntVector(segments);
+        }
+
+        static IntVector map(FileChannel channel, int length) throws IOException {
+            IntBuffer[] segments = new IntBuffer[segmentCount(length)];
+            for (int s = 0; s < segments.length; s++) {
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, ((long) s << SEGMENT_SHIFT) * Integer.BYTES,
+                        (long) segmentLength(length, s) * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+            }
+            return new IntVector(segments);
+        }
+
+        int get(int i) {
+            return segments[i >>> SEGMENT_SHIFT].get(i & SEGMENT_MASK);
+        }
+    }
+
+    private static int segmentCount(int length) {
+        return (int) (((long) length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    }
+
+    //values in segment s of a vector of length values
+    private static int segmentLength(int length, int s) {
+        return Math.min(SEGMENT_MASK + 1, length - (s << SEGMENT_SHIFT));
+    }
+
+    /*
+     * Sequential big-endian int reader over part of a file, through one reusable buffer.
+     * */
+    private static class IntReader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(STREAM_BUFFER_BYTES);
+        private long position;
+
+        IntReader(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+            buffer.limit(0);
+        }
+
+        int next() throws IOException {
+            fill();
+            return buffer.getInt();
+        }
+
+        int peek() throws IOException {
+            fill();
+            return buffer.getInt(buffer.position());
+        }
+
+        private void fill() throws IOException {
+            if (buffer.remaining() >= Integer.BYTES) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < Integer.BYTES) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Graph file ends early");
+                }
+                position += read;
+            }
+            buffer.flip();
+        }
+    }
+
+    /*
+     * Sequential int writer through one buffer. Blocks and out-degrees are scratch files read back by this
+     * machine only, so they're written in native byte order.
+     * */
+    private static class IntWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(STREAM_BUFFER_BYTES).order(ByteOrder.nativeOrder());
+
+        IntWriter(File file) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(int value) throws IOException {
+            if (buffer.remaining() < Integer.BYTES) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+}
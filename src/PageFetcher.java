@@ -0,0 +1,20 @@
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+
+/**
+ * Loads a page and hands it back as a parsed Jsoup document. Each crawler worker owns its own fetcher,
+ * so implementations don't need to be thread safe.
+ **/
+public interface PageFetcher extends AutoCloseable {
+
+    Document fetch(String url) throws IOException;
+
+    // fetchers that can time their own stages (page load, render, parse) record them here
+    default void setMetrics(CrawlMetrics metrics) {
+    }
+
+    // release the browser or connections held by this fetcher
+    @Override
+    void close();
+}
@@ -0,0 +1,99 @@
+/*
+ * PageRankConfig holds the knobs for a PageRank run. The defaults match the values Matrix always used:
+ * a damping factor of 0.8 (teleport probability lambda = 0.2) and a tolerance of .00001.
+ * Setting parallelism above 1 splits every iteration over a ForkJoinPool of that many threads.
+ * The solver picks how the iterations are done: plain power iteration (JACOBI, the default) or one of the
+ * accelerated solvers in AcceleratedPageRankEngine, which run on one thread.
+ * Setters return this so a config can be built in one expression.
+ * */
+public class PageRankConfig {
+
+    public enum Solver {
+        JACOBI, //power iteration, every rank computed from the previous iteration's ranks
+        GAUSS_SEIDEL, //in-place updates
+        AITKEN, //power iteration with Aitken extrapolation
+        QUADRATIC, //power iteration with quadratic extrapolation
+        ADAPTIVE //power iteration that stops recomputing settled recipes
+    }
+
+    private double damping = 0.8; //probability the random surfer follows a link
+    private double tolerance = .00001; //stop once the L1 change between iterations drops below this
+    private int maxIterations = 100; //hard stop in case the ranks never settle
+    private boolean verbose = false; //print the status of every iteration
+    private int parallelism = 1; //worker threads for an iteration, 1 runs the sequential kernel
+    private Solver solver = Solver.JACOBI;
+
+    public double getDamping() {
+        return damping;
+    }
+
+    public PageRankConfig setDamping(double damping) {
+        if (damping < 0 || damping >= 1) {
+            throw new IllegalArgumentException("Damping factor must be in [0, 1): " + damping);
+        }
+        this.damping = damping;
+        return this;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public PageRankConfig setTolerance(double tolerance) {
+        if (tolerance <= 0) {
+            throw new IllegalArgumentException("Tolerance must be positive: " + tolerance);
+        }
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public PageRankConfig setMaxIterations(int maxIterations) {
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("Need at least one iteration: " + maxIterations);
+        }
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    public PageRankConfig setVerbose(boolean verbose) {
+        this.verbose = verbose;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public PageRankConfig setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public Solver getSolver() {
+        return solver;
+    }
+
+    public PageRankConfig setSolver(Solver solver) {
+        if (solver == null) {
+            throw new IllegalArgumentException("Solver can't be null");
+        }
+        this.solver = solver;
+        return this;
+    }
+
+    //use one thread per available core
+    public PageRankConfig useAllCores() {
+        return setParallelism(Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.Arrays;
+
+/*
+ * PageRankEngine runs power iteration over a LinkGraph with a plain loop instead of recursion.
+ * Two rank arrays are swapped between iterations (double buffering) and a third holds each node's
+ * rank / out-degree, so no arrays are allocated once a run has started. Rank held by recipes with no
+ * outlinks (dangling recipes) is spread evenly over all recipes, so the ranks always sum to 1.
+ * A personalized run passes a teleport vector (summing to 1) that replaces the uniform 1/n for both the
+ * random jumps and the dangling rank, see TeleportVectors.
+ * When the config asks for more than one thread the run is handed to ParallelPageRankEngine, and any solver
+ * other than JACOBI to AcceleratedPageRankEngine. Every result carries the wall time of the run.
+ * */
+public class PageRankEngine {
+    private final LinkGraph graph;
+    private final PageRankConfig config;
+
+    public PageRankEngine(LinkGraph graph, PageRankConfig config) {
+        this.graph = graph;
+        this.config = config;
+    }
+
+    //run from the uniform vector 1/number of recipes
+    public PageRankResult run() {
+        int n = graph.getNodeCount();
+        double[] initial = new double[n];
+        Arrays.fill(initial, 1 / (double) n);
+        return run(initial);
+    }
+
+    //run from the given starting vector, which is left untouched
+    public PageRankResult run(double[] initialRanks) {
+        return run(initialRanks, null);
+    }
+
+    //personalized run: the surfer teleports to node j with probability teleport[j] (null = uniform)
+    public PageRankResult run(double[] initialRanks, double[] teleportVector) {
+        final int n = graph.getNodeCount();
+        if (initialRanks.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " initial ranks but got " + initialRanks.length);
+        }
+        if (teleportVector != null && teleportVector.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " teleport weights but got " + teleportVector.length);
+        }
+        long start = System.nanoTime();
+        PageRankResult result;
+        if (config.getSolver() != PageRankConfig.Solver.JACOBI) {
+            result = new AcceleratedPageRankEngine(graph, config).run(initialRanks, teleportVector);
+        } else if (config.getParallelism() > 1) {
+            result = new ParallelPageRankEngine(graph, config).run(initialRanks, teleportVector);
+        } else {
+            result = powerIteration(initialRanks, teleportVector);
+        }
+        return new PageRankResult(result.getRanks(), result.getIterations(), result.getDelta(), result.isConverged(),
+                System.nanoTime() - start);
+    }
+
+    private PageRankResult powerIteration(double[] initialRanks, double[] teleportVector) {
+        final int n = graph.getNodeCount();
+        final int[] inOffsets = graph.getInOffsets();
+        final int[] inSources = graph.getInSources();
+        final int[] outOffsets = graph.getOutOffsets();
+        final double damping = config.getDamping();
+
+        double[] ranks = initialRanks.clone();
+        double[] next = new double[n];
+        double[] share = new double[n]; //rank each node passes along every one of its outlinks
+
+        int iteration = 0;
+        double delta = Double.MAX_VALUE;
+        while (iteration < config.getMaxIterations() && delta >= config.getTolerance()) {
+            iteration++;
+
+            //split every rank over its outlinks and collect what the dangling recipes hold
+            double dangling = 0;
+            for (int i = 0; i < n; i++) {
+                int outDegree = outOffsets[i + 1] - outOffsets[i];
+                if (outDegree == 0) {
+                    dangling += ranks[i];
+                    share[i] = 0;
+                } else {
+                    share[i] = ranks[i] / outDegree;
+                }
+            }
+            //random jumps plus dangling rank, handed out by the teleport vector
+            final double jumpMass = (1 - damping) + damping * dangling;
+            final double base = jumpMass / n;
+
+            //pull the shares in over every inlink
+            delta = 0;
+            for (int j = 0; j < n; j++) {
+                double sum = 0;
+                for (int k = inOffsets[j]; k < inOffsets[j + 1]; k++) {
+                    sum += share[inSources[k]];
+                }
+                next[j] = (teleportVector == null ? base : jumpMass * teleportVector[j]) + damping * sum;
+                delta += Math.abs(next[j] - ranks[j]);
+            }
+
+            double[] swap = ranks;
+            ranks = next;
+            next = swap;
+
+            if (config.isVerbose()) {
+                System.out.println("Iteration: " + iteration + " --> L1 change = " + delta);
+            }
+        }
+
+        return new PageRankResult(ranks, iteration, delta, delta < config.getTolerance());
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * PageRankResult is what a PageRank run hands back: the rank of every node (indexed by node id),
+ * how many iterations it took, the final L1 change, whether it got under the tolerance and how long it took.
+ * */
+public class PageRankResult {
+    private final double[] ranks;
+    private final int iterations;
+    private final double delta;
+    private final boolean converged;
+    private final long elapsedNanos; //wall time of the run, 0 if it wasn't timed
+
+    public PageRankResult(double[] ranks, int iterations, double delta, boolean converged) {
+        this(ranks, iterations, delta, converged, 0);
+    }
+
+    public PageRankResult(double[] ranks, int iterations, double delta, boolean converged, long elapsedNanos) {
+        this.ranks = ranks;
+        this.iterations = iterations;
+        this.delta = delta;
+        this.converged = converged;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    //null when the ranks were left on disk, see OutOfCorePageRank.top
+    public double[] getRanks() {
+        return ranks;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public double getDelta() {
+        return delta;
+    }
+
+    public boolean isConverged() {
+        return converged;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedNanos / 1e6;
+    }
+}
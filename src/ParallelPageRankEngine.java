@@ -0,0 +1,157 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * ParallelPageRankEngine runs the same pull-based power iteration as PageRankEngine, but every iteration is
+ * split over a ForkJoinPool. The node range is cut into chunks that hold roughly the same number of inlinks,
+ * so a few recipes with huge inlink lists don't leave one thread working while the rest wait. The dangling
+ * mass and the L1 change are summed as fork-join reductions over the same chunks.
+ * */
+public class ParallelPageRankEngine {
+    private static final int CHUNKS_PER_THREAD = 4; //extra chunks let work stealing even out the load
+
+    private final LinkGraph graph;
+    private final PageRankConfig config;
+    private final int[] chunkStarts; //chunk c covers nodes chunkStarts[c] .. chunkStarts[c+1]-1
+
+    //state of the current iteration, read by the tasks below
+    private double[] ranks, next, share;
+    private double[] teleport; //null = uniform
+    private double jumpMass; //random jump plus dangling rank handed out by the teleport vector
+
+    public ParallelPageRankEngine(LinkGraph graph, PageRankConfig config) {
+        this.graph = graph;
+        this.config = config;
+        this.chunkStarts = splitByEdges(graph, config.getParallelism() * CHUNKS_PER_THREAD);
+    }
+
+    //cut the nodes into at most chunkCount ranges of about the same inlink count (plus one per node)
+    private static int[] splitByEdges(LinkGraph graph, int chunkCount) {
+        int n = graph.getNodeCount();
+        int[] inOffsets = graph.getInOffsets();
+        long totalWork = (long) graph.getEdgeCount() + n;
+        long perChunk = Math.max(1, (totalWork + chunkCount - 1) / chunkCount);
+
+        int[] starts = new int[chunkCount + 1];
+        int chunks = 0;
+        long work = 0;
+        for (int i = 0; i < n; i++) {
+            if (work == 0) {
+                starts[chunks++] = i;
+            }
+            work += inOffsets[i + 1] - inOffsets[i] + 1;
+            if (work >= perChunk && chunks < chunkCount) {
+                work = 0;
+            }
+        }
+        starts[chunks] = n;
+        return Arrays.copyOf(starts, chunks + 1);
+    }
+
+    public PageRankResult run(double[] initialRanks, double[] teleportVector) {
+        final int n = graph.getNodeCount();
+        final double damping = config.getDamping();
+        teleport = teleportVector;
+        ranks = initialRanks.clone();
+        next = new double[n];
+        share = new double[n];
+
+        ForkJoinPool pool = new ForkJoinPool(config.getParallelism());
+        try {
+            int iteration = 0;
+            double delta = Double.MAX_VALUE;
+            int chunks = chunkStarts.length - 1;
+            while (iteration < config.getMaxIterations() && delta >= config.getTolerance()) {
+                iteration++;
+
+                double dangling = pool.invoke(new ShareTask(0, chunks));
+                jumpMass = (1 - damping) + damping * dangling;
+                delta = pool.invoke(new PullTask(0, chunks));
+
+                double[] swap = ranks;
+                ranks = next;
+                next = swap;
+
+                if (config.isVerbose()) {
+                    System.out.println("Iteration: " + iteration + " --> L1 change = " + delta);
+                }
+            }
+            return new PageRankResult(ranks, iteration, delta, delta < config.getTolerance());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    //fills share[] for a range of chunks and returns the rank held by its dangling recipes
+    private class ShareTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final int fromChunk, toChunk;
+
+        ShareTask(int fromChunk, int toChunk) {
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected Double compute() {
+            if (toChunk - fromChunk > 1) {
+                int mid = (fromChunk + toChunk) >>> 1;
+                ShareTask left = new ShareTask(fromChunk, mid);
+                left.fork();
+                double right = new ShareTask(mid, toChunk).compute();
+                return left.join() + right;
+            }
+            int[] outOffsets = graph.getOutOffsets();
+            double dangling = 0;
+            for (int i = chunkStarts[fromChunk]; i < chunkStarts[toChunk]; i++) {
+                int outDegree = outOffsets[i + 1] - outOffsets[i];
+                if (outDegree == 0) {
+                    dangling += ranks[i];
+                    share[i] = 0;
+                } else {
+                    share[i] = ranks[i] / outDegree;
+                }
+            }
+            return dangling;
+        }
+    }
+
+    //computes next[] for a range of chunks and returns the L1 change over it
+    private class PullTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final int fromChunk, toChunk;
+
+        PullTask(int fromChunk, int toChunk) {
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected Double compute() {
+            if (toChunk - fromChunk > 1) {
+                int mid = (fromChunk + toChunk) >>> 1;
+                PullTask left = new PullTask(fromChunk, mid);
+                left.fork();
+                double right = new PullTask(mid, toChunk).compute();
+                return left.join() + right;
+            }
+            int[] inOffsets = graph.getInOffsets();
+            int[] inSources = graph.getInSources();
+            double damping = config.getDamping();
+            double base = jumpMass / graph.getNodeCount();
+            double delta = 0;
+            for (int j = chunkStarts[fromChunk]; j < chunkStarts[toChunk]; j++) {
+                double sum = 0;
+                for (int k = inOffsets[j]; k < inOffsets[j + 1]; k++) {
+                    sum += share[inSources[k]];
+                }
+                next[j] = (teleport == null ? base : jumpMass * teleport[j]) + damping * sum;
+                delta += Math.abs(next[j] - ranks[j]);
+            }
+            return delta;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/*
+ * RankCache keeps the PageRank results of past runs in a directory so an unchanged graph doesn't have to be
+ * reranked. Results are keyed by a fingerprint of the edge set (hashed by URL, so the order of the csv rows
+ * doesn't matter) together with the solver, damping, tolerance, iteration cap and teleport vector. At most
+ * capacity results are kept, dropping the least recently used one first. index.bin is rewritten when a result
+ * is added or the LRU order changes, not on every hit.
+ *
+ * On a miss, warmStart finds the cached run whose graph has the most recipes in common with this one, using a
+ * bottom-k sketch of the URL hashes of each graph, and lines its ranks up with this graph as a starting vector.
+ * Runs with the same settings are preferred: ranks from another damping or teleport vector still beat a uniform
+ * start, but they are further from where this run will converge.
+ *
+ * Every result is a RankVector file named after its key, and index.bin lists the entries in LRU order:
+ *   int magic "SHRC", int version, int count,
+ *   then count x (long key, long settings, int nodeCount, int sketchSize, long[sketchSize] sketch)
+ * */
+public class RankCache {
+    private static final int MAGIC = 0x53485243; //"SHRC"
+    private static final int VERSION = 2; //1 didn't store the settings
+    private static final int SKETCH_SIZE = 128;
+    private static final double MIN_SIMILARITY = 0.2; //below this a warm start isn't worth it
+
+    private final File dir;
+    private final int capacity;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); //least recently used first
+
+    public RankCache(File dir, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1: " + capacity);
+        }
+        this.dir = dir;
+        this.capacity = capacity;
+        dir.mkdirs();
+        try {
+            loadIndex();
+        } catch (IOException e) {
+            System.out.println("Couldn't read rank cache index, starting it over: " + e.getMessage());
+            entries.clear();
+        }
+    }
+
+    //fingerprint of graph's edge set plus everything else that changes the ranks
+    public static long key(LinkGraph graph, PageRankConfig config, double[] teleport) {
+        long[] urlHashes = urlHashes(graph);
+        return mix(edgeHash(graph, urlHashes) ^ settings(urlHashes, config, teleport));
+    }
+
+    //sum the edge hashes so the fingerprint doesn't depend on node ids
+    private static long edgeHash(LinkGraph graph, long[] urlHashes) {
+        long hash = graph.getNodeCount();
+        int[] offsets = graph.getOutOffsets();
+        int[] targets = graph.getOutTargets();
+        for (int n = 0; n < urlHashes.length; n++) {
+            hash += mix(urlHashes[n]);
+            for (int e = offsets[n]; e < offsets[n + 1]; e++) {
+                hash += mix(urlHashes[n] ^ Long.rotateLeft(urlHashes[targets[e]], 29));
+            }
+        }
+        return hash;
+    }
+
+    //fingerprint of the solver, damping, tolerance, iteration cap and teleport vector; the solvers stop at
+    //different ranks within the tolerance, so a result from one isn't an exact hit for another
+    private static long settings(long[] urlHashes, PageRankConfig config, double[] teleport) {
+        long hash = mix(hash(config.getSolver().name()) ^ Double.doubleToLongBits(config.getDamping()));
+        hash = mix(hash ^ Double.doubleToLongBits(config.getTolerance()));
+        hash = mix(hash ^ config.getMaxIterations());
+        if (teleport != null) {
+            long teleportHash = 0;
+            for (int n = 0; n < teleport.length; n++) {
+                teleportHash += mix(urlHashes[n] ^ Double.doubleToLongBits(teleport[n]));
+            }
+            hash = mix(hash ^ teleportHash);
+        }
+        return hash;
+    }
+
+    //the cached ranks for key lined up with graph's node ids, or null on a miss
+    public double[] get(long key, LinkGraph graph) {
+        boolean reordered = !isMostRecent(key);
+        Entry entry = entries.get(key); //also makes it the most recently used
+        if (entry == null || entry.nodeCount != graph.getNodeCount()) {
+            return null;
+        }
+        try {
+            double[] ranks = RankVector.load(fileFor(key)).alignTo(graph.getDictionary(), Double.NaN);
+            for (double rank : ranks) {
+                if (Double.isNaN(rank)) {
+                    return null; //a hash collision, the recipes don't match
+                }
+            }
+            if (reordered) {
+                saveIndex();
+            }
+            return ranks;
+        } catch (IOException e) {
+            System.out.println("Couldn't read cached ranks: " + e.getMessage());
+            entries.remove(key);
+            return null;
+        }
+    }
+
+    //store the ranks graph converged to under key, evicting the least recently used results past capacity
+    public void put(long key, LinkGraph graph, PageRankConfig config, double[] teleport, double[] ranks) {
+        try {
+            RankVector.of(graph, ranks).save(fileFor(key));
+            long[] urlHashes = urlHashes(graph);
+            long settings = settings(urlHashes, config, teleport);
+            entries.put(key, new Entry(key, settings, graph.getNodeCount(), sketch(urlHashes)));
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > capacity) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                Files.deleteIfExists(fileFor(evicted.key).toPath());
+            }
+            saveIndex();
+        } catch (IOException e) {
+            System.out.println("Couldn't cache ranks: " + e.getMessage());
+        }
+    }
+
+    //starting ranks for graph from the most similar cached run, or null if no cached run is close enough;
+    //a run with the same config and teleport wins over a more similar graph ranked with other settings
+    public double[] warmStart(LinkGraph graph, PageRankConfig config, double[] teleport) {
+        long[] urlHashes = urlHashes(graph);
+        long settings = settings(urlHashes, config, teleport);
+        long[] sketch = sketch(urlHashes);
+        Entry closest = null;
+        boolean closestMatches = false;
+        double bestSimilarity = 0;
+        for (Entry entry : entries.values()) {
+            double similarity = similarity(sketch, entry.sketch);
+            if (similarity < MIN_SIMILARITY) {
+                continue;
+            }
+            boolean matches = entry.settings == settings;
+            if (closest == null || (matches && !closestMatches)
+                    || (matches == closestMatches && similarity >= bestSimilarity)) {
+                bestSimilarity = similarity;
+                closest = entry;
+                closestMatches = matches;
+            }
+        }
+        if (closest == null) {
+            return null;
+        }
+        try {
+            double[] ranks = RankVector.load(fileFor(closest.key)).alignTo(graph.getDictionary(), Double.NaN);
+            if (!isMostRecent(closest.key)) {
+                entries.get(closest.key); //touch
+                saveIndex();
+            }
+            //new recipes start at the uniform rank and the vector is scaled back to a sum of 1
+            double sum = 0;
+            for (int i = 0; i < ranks.length; i++) {
+                if (Double.isNaN(ranks[i])) {
+                    ranks[i] = 1 / (double) ranks.length;
+                }
+                sum += ranks[i];
+            }
+            for (int i = 0; i < ranks.length; i++) {
+                ranks[i] /= sum;
+            }
+            return ranks;
+        } catch (IOException e) {
+            System.out.println("Couldn't read cached ranks: " + e.getMessage());
+            return null;
+        }
+    }
+
+    //whether key is already the most recently used entry, so using it again doesn't change what index.bin says
+    private boolean isMostRecent(long key) {
+        Long last = null;
+        for (Long k : entries.keySet()) {
+            last = k;
+        }
+        return last != null && last == key;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private File fileFor(long key) {
+        return new File(dir, Long.toHexString(key) + ".rank");
+    }
+
+    private static long[] urlHashes(LinkGraph graph) {
+        long[] hashes = new long[graph.getNodeCount()];
+        for (int n = 0; n < hashes.length; n++) {
+            hashes[n] = hash(graph.getUrl(n));
+        }
+        return hashes;
+    }
+
+    //64-bit FNV-1a over the url's chars, finished with mix
+    private static long hash(String url) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            h = (h ^ url.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    //splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    //the SKETCH_SIZE smallest url hashes, sorted
+    private static long[] sketch(long[] urlHashes) {
+        long[] sorted = urlHashes.clone();
+        Arrays.sort(sorted);
+        return Arrays.copyOf(sorted, Math.min(SKETCH_SIZE, sorted.length));
+    }
+
+    //estimated Jaccard similarity of the two url sets: the share of the union's bottom k that is in both
+    static double similarity(long[] a, long[] b) {
+        int k = Math.min(SKETCH_SIZE, Math.max(a.length, b.length));
+        int i = 0, j = 0, taken = 0, shared = 0;
+        while (taken < k && (i < a.length || j < b.length)) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                i++;
+            } else if (i == a.length || b[j] < a[i]) {
+                j++;
+            } else {
+                shared++;
+                i++;
+                j++;
+            }
+            taken++;
+        }
+        return taken == 0 ? 0 : shared / (double) taken;
+    }
+
+    private void loadIndex() throws IOException {
+        File index = new File(dir, "index.bin");
+        if (!index.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(index.getPath() + " is not a sheRanks rank cache index");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported rank cache version " + version);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long key = in.readLong();
+                long settings = in.readLong();
+                int nodeCount = in.readInt();
+                long[] sketch = new long[in.readInt()];
+                for (int s = 0; s < sketch.length; s++) {
+                    sketch[s] = in.readLong();
+                }
+                if (fileFor(key).exists()) {
+                    entries.put(key, new Entry(key, settings, nodeCount, sketch));
+                }
+            }
+        }
+    }
+
+    //write the index to a temp file and move it over the old one so a crash can't leave half an index
+    private void saveIndex() throws IOException {
+        File temp = new File(dir, "index.bin.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                out.writeLong(entry.key);
+                out.writeLong(entry.settings);
+                out.writeInt(entry.nodeCount);
+                out.writeInt(entry.sketch.length);
+                for (long hash : entry.sketch) {
+                    out.writeLong(hash);
+                }
+            }
+        }
+        Files.move(temp.toPath(), new File(dir, "index.bin").toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+     * One cached result: its key, the settings it was ranked with, how many recipes it ranked and the
+     * bottom-k sketch of their urls.
+     * */
+    private static class Entry {
+        private final long key;
+        private final long settings;
+        private final int nodeCount;
+        private final long[] sketch;
+
+        Entry(long key, long settings, int nodeCount, long[] sketch) {
+            this.key = key;
+            this.settings = settings;
+            this.nodeCount = nodeCount;
+            this.sketch = sketch;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * RankVector is a PageRank result keyed by recipe URL rather than node id, so it can be saved after one
+ * run and lined up with the ids of a later graph. On disk it is a small binary file:
+ *   int magic "SHRR", int version, int count, then count x (UTF url, double rank)
+ * */
+public class RankVector {
+    private static final int MAGIC = 0x53485252; //"SHRR"
+    private static final int VERSION = 1;
+
+    private final List<String> urls;
+    private final double[] ranks;
+
+    public RankVector(List<String> urls, double[] ranks) {
+        if (urls.size() != ranks.length) {
+            throw new IllegalArgumentException(urls.size() + " urls but " + ranks.length + " ranks");
+        }
+        this.urls = urls;
+        this.ranks = ranks;
+    }
+
+    //ranks indexed by the node ids of graph
+    public static RankVector of(LinkGraph graph, double[] ranks) {
+        return new RankVector(new ArrayList<>(graph.getDictionary().getUrls()), ranks);
+    }
+
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    public double[] getRanks() {
+        return ranks;
+    }
+
+    public int size() {
+        return ranks.length;
+    }
+
+    //the ranks re-indexed by the ids of dictionary; urls this vector doesn't know get missingValue
+    public double[] alignTo(UrlDictionary dictionary, double missingValue) {
+        double[] aligned = new double[dictionary.size()];
+        Arrays.fill(aligned, missingValue);
+        for (int i = 0; i < ranks.length; i++) {
+            int id = dictionary.lookup(urls.get(i));
+            if (id >= 0) {
+                aligned[id] = ranks[i];
+            }
+        }
+        return aligned;
+    }
+
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ranks.length);
+            for (int i = 0; i < ranks.length; i++) {
+                out.writeUTF(urls.get(i));
+                out.writeDouble(ranks[i]);
+            }
+        }
+    }
+
+    public static RankVector load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file.getPath() + " is not a sheRanks rank file");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported rank file version " + version + " in " + file.getPath());
+            }
+            int count = in.readInt();
+            List<String> urls = new ArrayList<>(count);
+            double[] ranks = new double[count];
+            for (int i = 0; i < count; i++) {
+                urls.add(in.readUTF());
+                ranks[i] = in.readDouble();
+            }
+            return new RankVector(urls, ranks);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * RankedList is the head of a ranking: node ids and their scores, best first, in two parallel primitive arrays.
+ * */
+public class RankedList {
+    private final int[] nodes;
+    private final double[] scores;
+
+    public RankedList(int[] nodes, double[] scores) {
+        this.nodes = nodes;
+        this.scores = scores;
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    //node id at position i (0 = highest score)
+    public int getNode(int i) {
+        return nodes[i];
+    }
+
+    public double getScore(int i) {
+        return scores[i];
+    }
+
+    public int[] getNodes() {
+        return nodes;
+    }
+
+    public double[] getScores() {
+        return scores;
+    }
+}
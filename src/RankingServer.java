@@ -0,0 +1,367 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * RankingServer keeps a ranked crawl in memory and answers queries about it over HTTP, as json:
+ *   GET  /top?n=10                       the n best recipes
+ *   GET  /rank?url=...                   rank, overall position and details of one recipe
+ *   GET  /topic?url=<topic page>&n=10    the n best recipes for a /topic page (topic-sensitive PageRank)
+ *   GET  /status                         which ranking is being served and why the last rerank failed, if it did
+ *   POST /reload                         rerank the csv files now
+ * Every query reads the current RankingSnapshot, whose indexes were built when it was ranked, so a query is
+ * a few array reads. A rerank runs on its own thread and builds a whole new snapshot, starting from the ranks
+ * being served, and only then swaps it in with one atomic set: queries never wait on a rerank, and each one
+ * sees either the old ranking or the new one, never a mix. With watch(), the csv files are checked every
+ * few seconds and a rerank starts when they change, e.g. after a recrawl. Reloads asked for while one is still
+ * queued share it, since it will read the files as they are when it starts.
+ * The server binds to the loopback address unless given another one.
+ * */
+public class RankingServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int MAX_RESULTS = 1000; //largest n a query may ask for, also the depth kept per topic
+    private static final int DEFAULT_RESULTS = 10;
+
+    private final HttpServer server;
+    private final ExecutorService requestThreads;
+    private final ExecutorService reranker = Executors.newSingleThreadExecutor(); //one rerank at a time
+    private final ScheduledExecutorService watcher = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicReference<RankingSnapshot> current = new AtomicReference<>(); //null until the first rank
+    private final AtomicLong versions = new AtomicLong();
+    private final File inlinkFile, outlinkFile, detailsFile;
+    private final PageRankConfig config;
+    //the rerank waiting for the reranker thread, null if none is waiting
+    private final AtomicReference<CompletableFuture<RankingSnapshot>> queued = new AtomicReference<>();
+    private volatile long loadedModified; //newest csv timestamp that has been ranked
+    private volatile Failure lastFailure; //why the last rerank failed, null once one succeeds
+
+    //test RankingServer: serve the crawl files in the working directory on localhost, optionally on another port
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        RankingServer server = new RankingServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                new File("inlinks.csv"), new File("outlinks.csv"), new File("details.csv"), new PageRankConfig());
+        server.reload().join(); //serve nothing until the first ranking is done
+        server.watch(30);
+        server.start();
+        System.out.println("Serving " + server.current().getGraph().getNodeCount() + " ranked recipes on http://"
+                + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/top?n=10");
+    }
+
+    public RankingServer(InetSocketAddress address, File inlinkFile, File outlinkFile, File detailsFile,
+                         PageRankConfig config) throws IOException {
+        this.inlinkFile = inlinkFile;
+        this.outlinkFile = outlinkFile;
+        this.detailsFile = detailsFile;
+        this.config = config;
+        this.server = HttpServer.create(address, 0);
+        this.requestThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        server.setExecutor(requestThreads);
+        server.createContext("/top", exchange -> respond(exchange, this::top));
+        server.createContext("/rank", exchange -> respond(exchange, this::rank));
+        server.createContext("/topic", exchange -> respond(exchange, this::topic));
+        server.createContext("/status", exchange -> respond(exchange, this::status));
+        server.createContext("/reload", this::handleReload);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        watcher.shutdownNow();
+        reranker.shutdownNow();
+        requestThreads.shutdown();
+    }
+
+    //where the server listens, with the real port if it was started on port 0
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    //the snapshot being served, or null before the first ranking finishes
+    public RankingSnapshot current() {
+        return current.get();
+    }
+
+    //serve ranks that were computed elsewhere, e.g. by a crawl that ranks its own graph
+    public void publish(RankingSnapshot snapshot) {
+        current.set(snapshot);
+    }
+
+    //rerank the csv files in the background; the new snapshot is served as soon as the future completes.
+    //If a rerank is already queued and hasn't started, this returns that one instead of queueing another
+    public CompletableFuture<RankingSnapshot> reload() {
+        CompletableFuture<RankingSnapshot> next = new CompletableFuture<>();
+        CompletableFuture<RankingSnapshot> waiting = queued.compareAndExchange(null, next);
+        if (waiting != null) {
+            return waiting;
+        }
+        reranker.execute(() -> {
+            queued.set(null); //files changed from now on need another rerank
+            try {
+                next.complete(rerank());
+            } catch (RuntimeException e) {
+                lastFailure = new Failure(e.getMessage(), System.currentTimeMillis());
+                System.out.println("Rerank failed, still serving the last ranking: " + e.getMessage());
+                next.completeExceptionally(e);
+            }
+        });
+        return next;
+    }
+
+    //rerank whenever the csv files change, checking every periodSeconds
+    public void watch(long periodSeconds) {
+        watcher.scheduleWithFixedDelay(() -> {
+            if (lastModified() != loadedModified) {
+                reload(); //a failure is logged and shown in /status
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    //runs on the reranker thread only
+    private RankingSnapshot rerank() {
+        long modified = lastModified();
+        try {
+            LinkGraph graph = LinkGraph.fromCsv(inlinkFile, outlinkFile);
+            RecipeDetails details = detailsFile.exists()
+                    ? RecipeDetails.load(detailsFile, graph.getDictionary())
+                    : RecipeDetails.empty(graph.getNodeCount());
+            RankingSnapshot served = current.get();
+            RankingSnapshot next = RankingSnapshot.build(versions.incrementAndGet(), graph, details, config,
+                    served == null ? null : warmStart(served, graph), MAX_RESULTS);
+            current.set(next);
+            loadedModified = modified;
+            lastFailure = null;
+            System.out.println("Serving ranking " + next.getVersion() + ": " + graph.getNodeCount() + " recipes, "
+                    + next.getTopicCount() + " topics, " + next.getIterations() + " iterations in "
+                    + String.format(Locale.ROOT, "%.1f", next.getElapsedMillis()) + " ms");
+            return next;
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't load the crawl files: " + e.getMessage(), e);
+        }
+    }
+
+    //the served ranks lined up with graph, new recipes at the uniform rank, scaled back to a sum of 1
+    private static double[] warmStart(RankingSnapshot served, LinkGraph graph) {
+        double[] ranks = RankVector.of(served.getGraph(), served.getRanks()).alignTo(graph.getDictionary(), Double.NaN);
+        for (int i = 0; i < ranks.length; i++) {
+            if (Double.isNaN(ranks[i])) {
+                ranks[i] = 1 / (double) ranks.length;
+            }
+        }
+        return TeleportVectors.normalize(ranks);
+    }
+
+    private long lastModified() {
+        return Math.max(inlinkFile.lastModified(), Math.max(outlinkFile.lastModified(), detailsFile.lastModified()));
+    }
+
+    private String top(RankingSnapshot snapshot, Map<String, String> params) {
+        return rankedJson(snapshot, snapshot.top(count(params)));
+    }
+
+    private String rank(RankingSnapshot snapshot, Map<String, String> params) {
+        int node = snapshot.lookup(required(params, "url"));
+        if (node < 0) {
+            throw new QueryException(404, "Not in the ranked graph: " + params.get("url"));
+        }
+        return "{\"version\": " + snapshot.getVersion() + ", \"recipes\": " + snapshot.getGraph().getNodeCount()
+                + ", " + recipeJson(snapshot, node, snapshot.getRank(node)) + "}";
+    }
+
+    private String topic(RankingSnapshot snapshot, Map<String, String> params) {
+        RankedList topic = snapshot.topic(required(params, "url"), count(params));
+        if (topic == null) {
+            throw new QueryException(404, "Not a topic page in the ranked graph: " + params.get("url"));
+        }
+        return rankedJson(snapshot, topic);
+    }
+
+    private String status(RankingSnapshot snapshot, Map<String, String> params) {
+        Failure failure = lastFailure;
+        return String.format(Locale.ROOT, "{\"version\": %d, \"createdMillis\": %d, \"recipes\": %d, \"links\": %d, "
+                        + "\"topics\": %d, \"iterations\": %d, \"rankMillis\": %.1f, \"lastFailure\": %s}",
+                snapshot.getVersion(), snapshot.getCreatedMillis(), snapshot.getGraph().getNodeCount(),
+                snapshot.getGraph().getEdgeCount(), snapshot.getTopicCount(), snapshot.getIterations(),
+                snapshot.getElapsedMillis(), failure == null ? "null" : failure.toJson());
+    }
+
+    private void handleReload(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, error("Use POST to start a rerank"));
+            return;
+        }
+        reload(); //a failure is logged and shown in /status
+        send(exchange, 202, "{\"reloading\": true}");
+    }
+
+    private String rankedJson(RankingSnapshot snapshot, RankedList list) {
+        StringBuilder json = new StringBuilder("{\"version\": ").append(snapshot.getVersion()).append(", \"results\": [");
+        for (int i = 0; i < list.size(); i++) {
+            json.append(i == 0 ? "\n  {" : ",\n  {").append(recipeJson(snapshot, list.getNode(i), list.getScore(i)))
+                    .append('}');
+        }
+        return json.append(list.size() == 0 ? "]}" : "\n]}").toString();
+    }
+
+    //the fields of one recipe; score is its PageRank in whichever ranking is being listed
+    private static String recipeJson(RankingSnapshot snapshot, int node, double score) {
+        RecipeDetails details = snapshot.getDetails();
+        StringBuilder json = new StringBuilder();
+        json.append("\"url\": ").append(quote(snapshot.getGraph().getUrl(node)));
+        json.append(", \"pageRank\": ").append(score);
+        json.append(", \"globalPosition\": ").append(snapshot.position(node) + 1);
+        json.append(", \"inlinks\": ").append(snapshot.getGraph().inDegree(node));
+        if (details.hasDetails(node)) {
+            json.append(", \"title\": ").append(quote(details.getTitle(node)));
+        }
+        if (details.getWouldMakeAgain(node) != RecipeDetails.MISSING) {
+            json.append(", \"wouldMakeAgain\": ").append(details.getWouldMakeAgain(node));
+        }
+        if (details.getTipsCount(node) != RecipeDetails.MISSING) {
+            json.append(", \"tips\": ").append(details.getTipsCount(node));
+        }
+        return json.toString();
+    }
+
+    //n from the query string, DEFAULT_RESULTS if it's missing
+    private static int count(Map<String, String> params) {
+        String value = params.get("n");
+        if (value == null) {
+            return DEFAULT_RESULTS;
+        }
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= 1 && n <= MAX_RESULTS) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            //reported below
+        }
+        throw new QueryException(400, "n must be a number from 1 to " + MAX_RESULTS + ": " + value);
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new QueryException(400, "Missing query parameter: " + name);
+        }
+        return value;
+    }
+
+    //answer a GET with query's json, read from the snapshot being served when the request came in
+    private void respond(HttpExchange exchange, Query query) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, error("Only GET is supported here"));
+                return;
+            }
+            RankingSnapshot snapshot = current.get();
+            if (snapshot == null) {
+                Failure failure = lastFailure;
+                send(exchange, 503, error(failure == null ? "The first ranking isn't done yet"
+                        : "The first ranking failed: " + failure.message));
+                return;
+            }
+            send(exchange, 200, query.answer(snapshot, params(exchange.getRequestURI().getRawQuery())));
+        } catch (QueryException e) {
+            send(exchange, e.status, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            send(exchange, 500, error(e.toString()));
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> params(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String error(String message) {
+        return "{\"error\": " + quote(message) + "}";
+    }
+
+    //message as a json string literal
+    private static String quote(String s) {
+        StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    //one read-only endpoint
+    private interface Query {
+        String answer(RankingSnapshot snapshot, Map<String, String> params);
+    }
+
+    //a bad query, answered with status instead of a ranking
+    private static class QueryException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        QueryException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    //why a rerank failed and when
+    private static class Failure {
+        private final String message;
+        private final long failedMillis;
+
+        Failure(String message, long failedMillis) {
+            this.message = message == null ? "unknown error" : message;
+            this.failedMillis = failedMillis;
+        }
+
+        String toJson() {
+            return "{\"message\": " + quote(message) + ", \"failedMillis\": " + failedMillis + "}";
+        }
+    }
+}
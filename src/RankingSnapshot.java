@@ -0,0 +1,156 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * RankingSnapshot is one finished ranking as RankingServer serves it: the graph, its PageRanks and the indexes
+ * the queries are answered from, all computed up front so a query never iterates or sorts anything:
+ *   order     - every node id, best rank first, so the top N is a prefix of it
+ *   positions - where each node sits in order, so "rank of URL X" is a dictionary lookup and an array read
+ *   topics    - for every /topic page, the head of its topic-sensitive PageRank (TeleportVectors.fromTopic)
+ * A snapshot is never changed after build returns, so any number of request threads can read it while the
+ * next one is being computed.
+ * */
+public class RankingSnapshot {
+    private static final int TOPIC_BATCH = 32; //topic vectors ranked together by one BatchPageRank run
+
+    private final long version;
+    private final long createdMillis;
+    private final LinkGraph graph;
+    private final double[] ranks;
+    private final int[] order;
+    private final int[] positions;
+    private final RecipeDetails details;
+    private final Map<Integer, RankedList> topics; //topic page node --> its best topicDepth recipes
+    private final int iterations;
+    private final double elapsedMillis;
+
+    private RankingSnapshot(long version, LinkGraph graph, double[] ranks, int[] order, RecipeDetails details,
+                            Map<Integer, RankedList> topics, int iterations, double elapsedMillis) {
+        this.version = version;
+        this.createdMillis = System.currentTimeMillis();
+        this.graph = graph;
+        this.ranks = ranks;
+        this.order = order;
+        this.details = details;
+        this.topics = topics;
+        this.iterations = iterations;
+        this.elapsedMillis = elapsedMillis;
+        this.positions = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            positions[order[i]] = i;
+        }
+    }
+
+    /*
+     * Rank graph and build the indexes. initialRanks is where the iterations start (null = uniform), and
+     * topicDepth is how many recipes are kept for each topic page.
+     * */
+    public static RankingSnapshot build(long version, LinkGraph graph, RecipeDetails details, PageRankConfig config,
+                                        double[] initialRanks, int topicDepth) {
+        PageRankEngine engine = new PageRankEngine(graph, config);
+        PageRankResult result = initialRanks == null ? engine.run() : engine.run(initialRanks);
+        double[] ranks = result.getRanks();
+        int n = graph.getNodeCount();
+        RankedList all = config.getParallelism() > 1
+                ? TopK.selectParallel(ranks, n, config.getParallelism())
+                : TopK.select(ranks, n);
+        return new RankingSnapshot(version, graph, ranks, all.getNodes(), details,
+                rankTopics(graph, config, topicDepth), result.getIterations(), result.getElapsedMillis());
+    }
+
+    //topic-sensitive PageRank for every /topic page in graph, TOPIC_BATCH pages per pass over the graph
+    private static Map<Integer, RankedList> rankTopics(LinkGraph graph, PageRankConfig config, int topicDepth) {
+        List<Integer> topicNodes = new ArrayList<>();
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            if (graph.getUrl(node).contains("/topic")) {
+                topicNodes.add(node);
+            }
+        }
+        Map<Integer, RankedList> topics = new HashMap<>();
+        for (int from = 0; from < topicNodes.size(); from += TOPIC_BATCH) {
+            List<Integer> batch = topicNodes.subList(from, Math.min(from + TOPIC_BATCH, topicNodes.size()));
+            double[][] teleports = new double[batch.size()][];
+            for (int t = 0; t < teleports.length; t++) {
+                teleports[t] = TeleportVectors.fromTopic(graph, graph.getUrl(batch.get(t)));
+            }
+            PageRankResult[] results = new BatchPageRank(graph, config).run(teleports);
+            for (int t = 0; t < results.length; t++) {
+                topics.put(batch.get(t), TopK.select(results[t].getRanks(), topicDepth));
+            }
+        }
+        return Collections.unmodifiableMap(topics);
+    }
+
+    //the first n entries of the global ranking
+    public RankedList top(int n) {
+        int size = Math.max(0, Math.min(n, order.length));
+        int[] nodes = new int[size];
+        double[] scores = new double[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = order[i];
+            scores[i] = ranks[order[i]];
+        }
+        return new RankedList(nodes, scores);
+    }
+
+    //the first n recipes of the topic page at url, or null if url isn't a topic page of this graph
+    public RankedList topic(String url, int n) {
+        int node = lookup(url);
+        RankedList topic = node < 0 ? null : topics.get(node);
+        if (topic == null || n >= topic.size()) {
+            return topic;
+        }
+        int size = Math.max(0, n);
+        return new RankedList(Arrays.copyOf(topic.getNodes(), size), Arrays.copyOf(topic.getScores(), size));
+    }
+
+    //node id of url in this snapshot's graph, or -1 if it isn't there
+    public int lookup(String url) {
+        return graph.getDictionary().lookup(UrlCanonicalizer.canonicalOrSelf(url));
+    }
+
+    //0-based position of node in the global ranking
+    public int position(int node) {
+        return positions[node];
+    }
+
+    public double getRank(int node) {
+        return ranks[node];
+    }
+
+    public LinkGraph getGraph() {
+        return graph;
+    }
+
+    public double[] getRanks() {
+        return ranks;
+    }
+
+    public RecipeDetails getDetails() {
+        return details;
+    }
+
+    public int getTopicCount() {
+        return topics.size();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
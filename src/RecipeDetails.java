@@ -0,0 +1,106 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * RecipeDetails is the details.csv metadata ("would make again" % and tips count) stored in columns indexed by
+ * the graph's node ids. The file is parsed once; after that looking up a recipe is an array read, so joining it
+ * onto the top K rankings is O(K), and the same columns can be reused for filtering and re-weighting.
+ * Recipes that aren't in details.csv (or have unreadable values) read as MISSING.
+ * */
+public class RecipeDetails {
+    public static final int MISSING = -1;
+
+    private final int[] wouldMakeAgain; //percentage 0-100
+    private final int[] tipsCount;
+    private final String[] titles;
+    private int recipesWithDetails;
+
+    private RecipeDetails(int nodeCount) {
+        this.wouldMakeAgain = new int[nodeCount];
+        this.tipsCount = new int[nodeCount];
+        this.titles = new String[nodeCount];
+        Arrays.fill(wouldMakeAgain, MISSING);
+        Arrays.fill(tipsCount, MISSING);
+    }
+
+    //details for every recipe of dictionary; rows for recipes outside the graph are skipped
+    public static RecipeDetails load(File detailsFile, UrlDictionary dictionary) throws IOException {
+        RecipeDetails details = new RecipeDetails(dictionary.size());
+        try (BufferedReader reader = new BufferedReader(new FileReader(detailsFile))) {
+            String line = reader.readLine(); //skip header
+            while ((line = reader.readLine()) != null) {
+                String[] fields = CsvFormat.parseLine(line); //0: recipe title, 1:url, 2:would, 3: tips count
+                if (fields.length < 4) {
+                    continue;
+                }
+                int node = dictionary.lookup(UrlCanonicalizer.canonicalOrSelf(fields[1]));
+                if (node < 0) {
+                    continue;
+                }
+                if (details.titles[node] == null) {
+                    details.recipesWithDetails++;
+                }
+                details.titles[node] = fields[0];
+                details.wouldMakeAgain[node] = parseCount(fields[2]);
+                details.tipsCount[node] = parseCount(fields[3]);
+            }
+        }
+        return details;
+    }
+
+    //a store with no details at all, e.g. when details.csv is missing
+    public static RecipeDetails empty(int nodeCount) {
+        return new RecipeDetails(nodeCount);
+    }
+
+    private static int parseCount(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return MISSING;
+        }
+    }
+
+    public int getWouldMakeAgain(int node) {
+        return wouldMakeAgain[node];
+    }
+
+    public int getTipsCount(int node) {
+        return tipsCount[node];
+    }
+
+    //recipe title, or null if the recipe isn't in details.csv
+    public String getTitle(int node) {
+        return titles[node];
+    }
+
+    public boolean hasDetails(int node) {
+        return titles[node] != null;
+    }
+
+    public int getRecipesWithDetails() {
+        return recipesWithDetails;
+    }
+
+    public int getNodeCount() {
+        return titles.length;
+    }
+
+    //the entries of list with at least minWouldMakeAgain % and minTips tips, in the same order
+    public RankedList filter(RankedList list, int minWouldMakeAgain, int minTips) {
+        int[] nodes = new int[list.size()];
+        double[] scores = new double[list.size()];
+        int kept = 0;
+        for (int i = 0; i < list.size(); i++) {
+            int node = list.getNode(i);
+            if (wouldMakeAgain[node] >= minWouldMakeAgain && tipsCount[node] >= minTips) {
+                nodes[kept] = node;
+                scores[kept++] = list.getScore(i);
+            }
+        }
+        return new RankedList(Arrays.copyOf(nodes, kept), Arrays.copyOf(scores, kept));
+    }
+}
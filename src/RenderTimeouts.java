@@ -0,0 +1,73 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-host estimate of how long a page takes to render its dynamic content, used as the render wait timeout.
+ * Like a TCP retransmit timer it keeps a smoothed latency and its mean deviation and waits for
+ * smoothed + 4 * deviation, clamped to [minMillis, maxMillis]. Fast hosts stop waiting early on pages that
+ * will never finish, while a host that slows down backs the timeout off until pages render again.
+ **/
+public class RenderTimeouts {
+    private final long minMillis;
+    private final long maxMillis;
+    private final ConcurrentMap<String, Estimate> hosts = new ConcurrentHashMap<>();
+
+    public RenderTimeouts(long minMillis, long maxMillis) {
+        if (minMillis <= 0 || maxMillis < minMillis) {
+            throw new IllegalArgumentException("Need 0 < minMillis <= maxMillis, got " + minMillis + " and " + maxMillis);
+        }
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    // how long to wait for url's page to render
+    public long timeoutMillis(String url) {
+        Estimate estimate = hosts.get(HostRateLimiter.hostOf(url));
+        return estimate == null ? maxMillis : estimate.timeout();
+    }
+
+    // the page rendered in millis
+    public void rendered(String url, long millis) {
+        estimateFor(url).sample(millis);
+    }
+
+    // nothing rendered before the timeout ran out, so the host is slower than we thought
+    public void timedOut(String url) {
+        estimateFor(url).backOff();
+    }
+
+    private Estimate estimateFor(String url) {
+        return hosts.computeIfAbsent(HostRateLimiter.hostOf(url), h -> new Estimate());
+    }
+
+    private class Estimate {
+        private double smoothed = -1; // no sample yet
+        private double deviation;
+        private long backedOff; // timeout forced up by back-offs until the next sample
+
+        synchronized void sample(long millis) {
+            if (smoothed < 0) {
+                smoothed = millis;
+                deviation = millis / 2.0;
+            } else {
+                deviation = 0.75 * deviation + 0.25 * Math.abs(smoothed - millis);
+                smoothed = 0.875 * smoothed + 0.125 * millis;
+            }
+            backedOff = 0;
+        }
+
+        synchronized void backOff() {
+            backedOff = Math.min(maxMillis, Math.max(timeout(), minMillis) * 2);
+        }
+
+        synchronized long timeout() {
+            if (backedOff > 0) {
+                return backedOff;
+            }
+            if (smoothed < 0) {
+                return maxMillis;
+            }
+            return Math.max(minMillis, Math.min(maxMillis, (long) (smoothed + 4 * deviation)));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Fetcher that hands each URL to a static or a browser fetcher according to a FetchPolicy.
+ * The underlying fetchers are only created the first time they're needed, so a worker that never
+ * sees a recipe page never starts a browser.
+ **/
+public class RoutingPageFetcher implements PageFetcher {
+    private FetchPolicy policy;
+    private Supplier<PageFetcher> staticFactory;
+    private Supplier<PageFetcher> browserFactory;
+    private PageFetcher staticFetcher;
+    private PageFetcher browserFetcher;
+    private CrawlMetrics metrics;
+
+    // tasty.co routing with recipe pages going to browser sessions from pool
+    public RoutingPageFetcher(WebDriverPool pool) {
+        this(FetchPolicy.tastyDefault(), JsoupPageFetcher::new, () -> new ChromePageFetcher(pool));
+    }
+
+    public RoutingPageFetcher(FetchPolicy policy, Supplier<PageFetcher> staticFactory, Supplier<PageFetcher> browserFactory) {
+        this.policy = policy;
+        this.staticFactory = staticFactory;
+        this.browserFactory = browserFactory;
+    }
+
+    @Override
+    public Document fetch(String url) throws IOException {
+        if (policy.modeFor(url) == FetchPolicy.Mode.BROWSER) {
+            if (browserFetcher == null) {
+                browserFetcher = browserFactory.get();
+                browserFetcher.setMetrics(metrics);
+            }
+            return browserFetcher.fetch(url);
+        }
+        if (staticFetcher == null) {
+            staticFetcher = staticFactory.get();
+            staticFetcher.setMetrics(metrics);
+        }
+        return staticFetcher.fetch(url);
+    }
+
+    @Override
+    public void setMetrics(CrawlMetrics metrics) {
+        this.metrics = metrics;
+        if (staticFetcher != null) {
+            staticFetcher.setMetrics(metrics);
+        }
+        if (browserFetcher != null) {
+            browserFetcher.setMetrics(metrics);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (staticFetcher != null) {
+            staticFetcher.close();
+        }
+        if (browserFetcher != null) {
+            browserFetcher.close();
+        }
+    }
+}
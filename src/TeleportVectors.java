@@ -0,0 +1,67 @@
+import java.util.Collection;
+
+/*
+ * TeleportVectors builds personalization vectors for PageRankEngine: where the random surfer lands when it
+ * jumps instead of following a link. Every vector sums to 1; if nothing gets any weight the uniform vector
+ * is returned so a run never loses its rank mass.
+ * */
+public class TeleportVectors {
+
+    private TeleportVectors() {
+    }
+
+    /*
+     * Quality-weighted: a recipe's weight is its "would make again" share times log(1 + tips count), so a
+     * well-liked recipe that many people have reviewed attracts more jumps. Recipes without details get none.
+     * */
+    public static double[] fromQuality(RecipeDetails details) {
+        int n = details.getNodeCount();
+        double[] weights = new double[n];
+        for (int i = 0; i < n; i++) {
+            int percentage = details.getWouldMakeAgain(i);
+            int tips = details.getTipsCount(i);
+            if (percentage != RecipeDetails.MISSING && tips != RecipeDetails.MISSING) {
+                weights[i] = (percentage / 100.0) * Math.log1p(tips);
+            }
+        }
+        return normalize(weights);
+    }
+
+    //uniform over a seed set of recipe URLs; URLs that aren't in the graph are ignored
+    public static double[] fromSeeds(LinkGraph graph, Collection<String> seedUrls) {
+        double[] weights = new double[graph.getNodeCount()];
+        for (String url : seedUrls) {
+            int node = graph.getDictionary().lookup(UrlCanonicalizer.canonicalOrSelf(url));
+            if (node >= 0) {
+                weights[node] = 1;
+            }
+        }
+        return normalize(weights);
+    }
+
+    //topic-sensitive: uniform over the recipes a /topic page links to
+    public static double[] fromTopic(LinkGraph graph, String topicUrl) {
+        double[] weights = new double[graph.getNodeCount()];
+        int topic = graph.getDictionary().lookup(UrlCanonicalizer.canonicalOrSelf(topicUrl));
+        if (topic >= 0) {
+            int[] offsets = graph.getOutOffsets();
+            int[] targets = graph.getOutTargets();
+            for (int e = offsets[topic]; e < offsets[topic + 1]; e++) {
+                weights[targets[e]] = 1;
+            }
+        }
+        return normalize(weights);
+    }
+
+    //scale weights to sum to 1 in place, or fall back to uniform if they're all zero
+    public static double[] normalize(double[] weights) {
+        double sum = 0;
+        for (double w : weights) {
+            sum += w;
+        }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = sum > 0 ? weights[i] / sum : 1 / (double) weights.length;
+        }
+        return weights;
+    }
+}
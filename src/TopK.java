@@ -0,0 +1,145 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * TopK picks the k highest scores out of a double[] without sorting the whole array. A bounded min-heap of
+ * size k holds the best nodes seen so far, so selection is O(N log k) time and O(k) memory, and nothing gets
+ * boxed. Ties go to the lower node id so results are the same every run.
+ * For very large arrays selectParallel builds one heap per chunk on a ForkJoinPool and merges the chunk results.
+ * */
+public class TopK {
+    private static final int PARALLEL_CHUNK = 1 << 16; //below this many scores a chunk is done on one thread
+
+    private TopK() {
+    }
+
+    public static RankedList select(double[] scores, int k) {
+        return select(scores, 0, scores.length, k);
+    }
+
+    //top k of scores[from..to)
+    public static RankedList select(double[] scores, int from, int to, int k) {
+        k = Math.min(k, to - from);
+        if (k <= 0) {
+            return new RankedList(new int[0], new double[0]);
+        }
+        int[] heapNodes = new int[k];
+        double[] heapScores = new double[k];
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            if (size < k) {
+                //sift the new entry up
+                int pos = size++;
+                while (pos > 0) {
+                    int parent = (pos - 1) >>> 1;
+                    if (!better(heapScores[parent], heapNodes[parent], scores[i], i)) {
+                        break;
+                    }
+                    heapNodes[pos] = heapNodes[parent];
+                    heapScores[pos] = heapScores[parent];
+                    pos = parent;
+                }
+                heapNodes[pos] = i;
+                heapScores[pos] = scores[i];
+            } else if (better(scores[i], i, heapScores[0], heapNodes[0])) {
+                siftDown(heapNodes, heapScores, size, i, scores[i]); //replace the worst of the current top k
+            }
+        }
+
+        //pop the worst entry into the last free slot until the heap is empty, which leaves it sorted best first
+        for (int end = size - 1; end > 0; end--) {
+            int worstNode = heapNodes[0];
+            double worstScore = heapScores[0];
+            siftDown(heapNodes, heapScores, end, heapNodes[end], heapScores[end]);
+            heapNodes[end] = worstNode;
+            heapScores[end] = worstScore;
+        }
+        return new RankedList(heapNodes, heapScores);
+    }
+
+    //top k using a fork-join pool with the given number of threads
+    public static RankedList selectParallel(double[] scores, int k, int parallelism) {
+        if (scores.length <= PARALLEL_CHUNK || parallelism <= 1) {
+            return select(scores, k);
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new SelectTask(scores, 0, scores.length, k));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    //merge two best-first lists into the best k of both
+    static RankedList merge(RankedList a, RankedList b, int k) {
+        int size = Math.min(k, a.size() + b.size());
+        int[] nodes = new int[size];
+        double[] scores = new double[size];
+        int i = 0, j = 0;
+        for (int out = 0; out < size; out++) {
+            boolean takeA = j >= b.size()
+                    || (i < a.size() && better(a.getScore(i), a.getNode(i), b.getScore(j), b.getNode(j)));
+            if (takeA) {
+                nodes[out] = a.getNode(i);
+                scores[out] = a.getScore(i++);
+            } else {
+                nodes[out] = b.getNode(j);
+                scores[out] = b.getScore(j++);
+            }
+        }
+        return new RankedList(nodes, scores);
+    }
+
+    //put (node, score) at the root of a min-heap of the given size and sift it down
+    private static void siftDown(int[] heapNodes, double[] heapScores, int size, int node, double score) {
+        int pos = 0;
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && better(heapScores[child], heapNodes[child], heapScores[child + 1], heapNodes[child + 1])) {
+                child++; //the worse of the two children
+            }
+            if (!better(score, node, heapScores[child], heapNodes[child])) {
+                break;
+            }
+            heapNodes[pos] = heapNodes[child];
+            heapScores[pos] = heapScores[child];
+            pos = child;
+        }
+        heapNodes[pos] = node;
+        heapScores[pos] = score;
+    }
+
+    //does (scoreA, nodeA) rank ahead of (scoreB, nodeB)?
+    private static boolean better(double scoreA, int nodeA, double scoreB, int nodeB) {
+        return scoreA > scoreB || (scoreA == scoreB && nodeA < nodeB);
+    }
+
+    private static class SelectTask extends RecursiveTask<RankedList> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] scores;
+        private final int from, to, k;
+
+        SelectTask(double[] scores, int from, int to, int k) {
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+        }
+
+        @Override
+        protected RankedList compute() {
+            if (to - from <= PARALLEL_CHUNK) {
+                return select(scores, from, to, k);
+            }
+            int mid = (from + to) >>> 1;
+            SelectTask left = new SelectTask(scores, from, mid, k);
+            left.fork();
+            RankedList right = new SelectTask(scores, mid, to, k).compute();
+            return merge(left.join(), right, k);
+        }
+    }
+}
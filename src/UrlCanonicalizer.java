@@ -0,0 +1,85 @@
+/**
+ * Puts URLs in one canonical form so the same page always gets the same node: scheme and host are lower
+ * cased, default ports, query strings and fragments are dropped, and so is a trailing slash on the path
+ * ("https://Tasty.co/recipe/x/?utm=1#tips" becomes "https://tasty.co/recipe/x"). Used by the crawler
+ * before interning a link and by Matrix when it reads URLs from the csv files.
+ * A URL that is already canonical is handed back as is, so the common case allocates nothing.
+ **/
+public final class UrlCanonicalizer {
+
+    private UrlCanonicalizer() {
+    }
+
+    // canonical form of url, or null if it isn't an absolute http(s) url
+    public static String canonicalize(String url) {
+        if (url == null) {
+            return null;
+        }
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd != 4 && schemeEnd != 5) {
+            return null;
+        }
+        boolean https = schemeEnd == 5 && url.regionMatches(true, 0, "https", 0, 5);
+        if (!https && !(schemeEnd == 4 && url.regionMatches(true, 0, "http", 0, 4))) {
+            return null;
+        }
+
+        int hostStart = schemeEnd + 3;
+        int hostEnd = hostStart;
+        while (hostEnd < url.length() && "/?#".indexOf(url.charAt(hostEnd)) < 0) {
+            hostEnd++;
+        }
+        if (hostEnd == hostStart) {
+            return null;
+        }
+        int pathEnd = hostEnd;
+        while (pathEnd < url.length() && url.charAt(pathEnd) != '?' && url.charAt(pathEnd) != '#') {
+            pathEnd++;
+        }
+        int trimmedPathEnd = pathEnd;
+        while (trimmedPathEnd > hostEnd + 1 && url.charAt(trimmedPathEnd - 1) == '/') {
+            trimmedPathEnd--;
+        }
+
+        String defaultPort = https ? ":443" : ":80";
+        boolean hasDefaultPort = url.startsWith(defaultPort, hostEnd - defaultPort.length());
+        boolean hostChanged = !isLowerCase(url, 0, hostEnd) || hasDefaultPort;
+        boolean pathChanged = trimmedPathEnd != url.length() || hostEnd == url.length();
+        if (!hostChanged && !pathChanged) {
+            return url;
+        }
+
+        StringBuilder canonical = new StringBuilder(trimmedPathEnd + 1);
+        canonical.append(https ? "https://" : "http://");
+        appendLowerCase(canonical, url, hostStart, hasDefaultPort ? hostEnd - defaultPort.length() : hostEnd);
+        if (hostEnd == trimmedPathEnd) {
+            canonical.append('/'); // the root page is "https://host/"
+        } else {
+            canonical.append(url, hostEnd, trimmedPathEnd);
+        }
+        return canonical.toString();
+    }
+
+    // url with canonicalize applied where it can be, e.g. for urls read back from csv files
+    public static String canonicalOrSelf(String url) {
+        String canonical = canonicalize(url);
+        return canonical == null ? url : canonical;
+    }
+
+    private static boolean isLowerCase(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendLowerCase(StringBuilder out, String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            out.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+ * UrlDictionary interns recipe URLs into dense int ids (0..size-1) so the graph can be stored in primitive
+ * arrays. Lookups go through a HashMap instead of scanning a list, so building the dictionary is O(V).
+ * */
+public class UrlDictionary {
+    private HashMap<String, Integer> ids = new HashMap<>(); //url --> node id
+    private ArrayList<String> urls = new ArrayList<>(); //node id --> url
+
+    //returns the id for url, adding it to the dictionary if it hasn't been seen yet
+    public int intern(String url) {
+        Integer id = ids.get(url);
+        if (id == null) {
+            id = urls.size();
+            ids.put(url, id);
+            urls.add(url);
+        }
+        return id;
+    }
+
+    //returns the id for url, or -1 if it isn't in the dictionary
+    public int lookup(String url) {
+        Integer id = ids.get(url);
+        return id == null ? -1 : id;
+    }
+
+    public boolean contains(String url) {
+        return ids.containsKey(url);
+    }
+
+    public String getUrl(int id) {
+        return urls.get(id);
+    }
+
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    public int size() {
+        return urls.size();
+    }
+}
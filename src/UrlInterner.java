@@ -0,0 +1,58 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe counterpart of UrlDictionary for the crawler: maps each URL to a dense int id (0..size-1)
+ * so crawl state can be kept in int sets and bitsets instead of sets of Strings, and every URL string is
+ * stored exactly once. Looking up a URL that is already known never locks; only the first intern of a new
+ * URL goes through ConcurrentHashMap.computeIfAbsent and a short lock to claim the next id, which is what
+ * keeps the ids dense.
+ * URLs by id live in fixed-size chunks that are added as needed, so the table never has to be copied.
+ **/
+public class UrlInterner {
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << (31 - CHUNK_BITS);
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<AtomicReferenceArray<String>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    private volatile int size; // only written by add
+
+    // id of url, adding it if it hasn't been seen yet
+    public int intern(String url) {
+        Integer id = ids.get(url);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(url, this::add);
+    }
+
+    // called by computeIfAbsent once per new url; the url is stored before size makes its id visible
+    private synchronized Integer add(String url) {
+        int id = size;
+        int index = id >>> CHUNK_BITS;
+        if (chunks.get(index) == null) {
+            chunks.set(index, new AtomicReferenceArray<>(CHUNK_SIZE));
+        }
+        chunks.get(index).set(id & (CHUNK_SIZE - 1), url);
+        size = id + 1;
+        return id;
+    }
+
+    // id of url, or -1 if it hasn't been interned
+    public int lookup(String url) {
+        Integer id = ids.get(url);
+        return id == null ? -1 : id;
+    }
+
+    public String getUrl(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No url with id " + id + ", size is " + size);
+        }
+        return chunks.get(id >>> CHUNK_BITS).get(id & (CHUNK_SIZE - 1));
+    }
+
+    public int size() {
+        return size;
+    }
+}
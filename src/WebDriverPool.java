@@ -0,0 +1,264 @@
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Pool of warmed-up browser sessions that crawl tasks lease one page at a time.
+ * Starting a browser is the most expensive thing the crawler does, so sessions are started up front and
+ * reused. A session is swapped for a fresh one after maxPagesPerSession pages, when the JS heap of the page
+ * it has open grows past maxPageHeapBytes, or right away if it crashed. maxPageHeapBytes is checked against
+ * the page's performance.memory.usedJSHeapSize, not the memory of the browser process, so it catches a
+ * leaking page but not a browser that grows for other reasons (maxPagesPerSession bounds that).
+ * Replacements start on a background thread so the worker returning the session doesn't wait for it.
+ * Handing a session back and closing the pool are serialized, so every session is either idle before close()
+ * drains the pool or retired by whoever sees it closed.
+ **/
+public class WebDriverPool implements AutoCloseable {
+    private static final int START_ATTEMPTS = 3;
+
+    private final Supplier<WebDriver> driverFactory;
+    private final int maxPagesPerSession;
+    private final long maxPageHeapBytes;
+    private final BlockingQueue<Session> idle = new LinkedBlockingQueue<>();
+    private final ExecutorService starter;
+    private final AtomicInteger live = new AtomicInteger(); // sessions running or being started
+    private final Object lifecycle = new Object(); // guards closed against sessions going back into idle
+    private volatile boolean closed;
+
+    // metrics
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong leaseWaitNanos = new AtomicLong();
+    private final AtomicLong pagesServed = new AtomicLong();
+    private final AtomicLong sessionsRetired = new AtomicLong();
+    private final AtomicLong pagesOfRetiredSessions = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+    private final AtomicLong crashes = new AtomicLong();
+
+    public WebDriverPool(int size, int maxPagesPerSession, long maxPageHeapBytes, Supplier<WebDriver> driverFactory) {
+        this.driverFactory = driverFactory;
+        this.maxPagesPerSession = maxPagesPerSession;
+        this.maxPageHeapBytes = maxPageHeapBytes;
+        this.starter = Executors.newFixedThreadPool(Math.max(1, Math.min(size, 4)), r -> {
+            Thread t = new Thread(r, "webdriver-starter");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // warm up: start every session now, in parallel, and wait until they're ready
+        live.addAndGet(size);
+        for (int i = 0; i < size; i++) {
+            starter.execute(this::startSession);
+        }
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        while (idle.size() < live.get() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    // pool of headless chrome sessions, recycled every 100 pages or once a page's JS heap passes 512MB
+    public static WebDriverPool headlessChrome(int size) {
+        // chrome web driver settings (uncomment appropriate webdriver settings)
+        System.setProperty("webdriver.chrome.driver", "src/resources/chromedriver"); // mac
+//        System.setProperty("webdriver.chrome.driver", "src/resources/chromedriver.exe"); // windows
+
+        // options for web driver
+        ChromeOptions options = new ChromeOptions().addArguments("--headless"); // run a chrome browser in the background
+        return new WebDriverPool(size, 100, 512L * 1024 * 1024, () -> new ChromeDriver(options));
+    }
+
+    // blocks until a session is free
+    public Session lease() throws InterruptedException {
+        long start = System.nanoTime();
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("WebDriverPool is closed");
+            }
+            if (live.get() == 0) {
+                throw new IllegalStateException("No browser sessions could be started");
+            }
+            Session session = idle.poll(100, TimeUnit.MILLISECONDS);
+            if (session != null) {
+                leases.incrementAndGet();
+                leaseWaitNanos.addAndGet(System.nanoTime() - start);
+                return session;
+            }
+        }
+    }
+
+    // give a session back after one page; crashed = the browser threw something other than a page error
+    public void release(Session session, boolean crashed) {
+        session.pages++;
+        pagesServed.incrementAndGet();
+        // ask the browser before taking the lock, it can be slow to answer
+        boolean worn = crashed || session.pages >= maxPagesPerSession || pageHeapBytes(session) > maxPageHeapBytes;
+        synchronized (lifecycle) {
+            if (closed) {
+                retire(session);
+                return;
+            }
+            if (crashed) {
+                crashes.incrementAndGet();
+            }
+            if (worn) {
+                replace(session);
+            } else {
+                idle.add(session);
+            }
+        }
+    }
+
+    private void replace(Session session) {
+        retire(session);
+        restarts.incrementAndGet();
+        live.incrementAndGet();
+        try {
+            starter.execute(this::startSession);
+        } catch (RejectedExecutionException e) {
+            live.decrementAndGet(); // closing, the replacement isn't needed
+        }
+    }
+
+    private void retire(Session session) {
+        live.decrementAndGet();
+        sessionsRetired.incrementAndGet();
+        pagesOfRetiredSessions.addAndGet(session.pages);
+        quit(session.driver);
+    }
+
+    private void startSession() {
+        for (int attempt = 1; attempt <= START_ATTEMPTS && !closed; attempt++) {
+            WebDriver driver = null;
+            try {
+                driver = driverFactory.get();
+                driver.get("about:blank"); // make sure the session actually answers
+                synchronized (lifecycle) {
+                    if (!closed) {
+                        idle.add(new Session(driver));
+                        return;
+                    }
+                }
+                quit(driver); // the pool closed while this browser was starting, don't hand it out
+                break;
+            } catch (RuntimeException e) {
+                System.out.println("Couldn't start browser session (attempt " + attempt + "): " + e.getMessage());
+            }
+            quit(driver);
+        }
+        live.decrementAndGet();
+    }
+
+    private static void quit(WebDriver driver) {
+        if (driver == null) {
+            return;
+        }
+        try {
+            driver.quit();
+        } catch (RuntimeException e) {
+            // the browser is already gone
+        }
+    }
+
+    // used JS heap of the page the session has open, or 0 if the browser doesn't say
+    private long pageHeapBytes(Session session) {
+        try {
+            Object used = ((JavascriptExecutor) session.driver).executeScript(
+                    "return window.performance && performance.memory ? performance.memory.usedJSHeapSize : 0;");
+            return used instanceof Number ? ((Number) used).longValue() : 0;
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    public long getLeases() {
+        return leases.get();
+    }
+
+    public double getAverageLeaseWaitMillis() {
+        long n = leases.get();
+        return n == 0 ? 0 : leaseWaitNanos.get() / 1e6 / n;
+    }
+
+    public long getPagesServed() {
+        return pagesServed.get();
+    }
+
+    public double getAveragePagesPerSession() {
+        long n = sessionsRetired.get();
+        return n == 0 ? 0 : pagesOfRetiredSessions.get() / (double) n;
+    }
+
+    public long getRestarts() {
+        return restarts.get();
+    }
+
+    public long getCrashes() {
+        return crashes.get();
+    }
+
+    public int getLiveSessions() {
+        return live.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WebDriverPool[live=%d, leases=%d, avgLeaseWait=%.1fms, pages=%d, avgPagesPerSession=%.1f, restarts=%d, crashes=%d]",
+                getLiveSessions(), getLeases(), getAverageLeaseWaitMillis(), getPagesServed(),
+                getAveragePagesPerSession(), getRestarts(), getCrashes());
+    }
+
+    @Override
+    public void close() {
+        synchronized (lifecycle) {
+            closed = true; // from here on every released or newly started session is quit, not made idle
+        }
+        starter.shutdownNow();
+        // a session that was already starting quits itself once it sees closed, wait for that before draining
+        try {
+            if (!starter.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println("Browser sessions still starting after 1 minute, closing without them");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Session session;
+        while ((session = idle.poll()) != null) {
+            retire(session);
+        }
+    }
+
+    /**
+     * One browser session plus the number of pages it has loaded.
+     **/
+    public static class Session {
+        private final WebDriver driver;
+        private int pages;
+
+        Session(WebDriver driver) {
+            this.driver = driver;
+        }
+
+        public WebDriver getDriver() {
+            return driver;
+        }
+
+        public int getPages() {
+            return pages;
+        }
+    }
+}
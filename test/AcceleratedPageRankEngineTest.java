@@ -0,0 +1,78 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Checks that every accelerated solver converges to the ranks PageRankEngine's power iteration converges to,
+ * with and without a teleport vector, and that a run stopped by the iteration cap doesn't claim to have
+ * converged. The tolerance is tight enough that Aitken and quadratic extrapolation run a few times.
+ * */
+public class AcceleratedPageRankEngineTest {
+    private static final int RECIPES = 5000;
+    private static final double TOLERANCE = 1e-8;
+    private static final PageRankConfig.Solver[] SOLVERS = {PageRankConfig.Solver.GAUSS_SEIDEL,
+            PageRankConfig.Solver.AITKEN, PageRankConfig.Solver.QUADRATIC, PageRankConfig.Solver.ADAPTIVE};
+
+    private final LinkGraph linked = TestGraphs.powerLaw(7, RECIPES, RECIPES, 5);
+    private final LinkGraph dangling = TestGraphs.powerLaw(8, RECIPES, RECIPES / 5, 5);
+
+    @Test
+    public void solversConvergeToThePowerIterationRanks() {
+        checkAll(linked, null);
+        checkAll(dangling, null);
+    }
+
+    @Test
+    public void solversConvergeToThePowerIterationRanksWithATeleportVector() {
+        checkAll(linked, TestGraphs.skewedTeleport(RECIPES));
+        checkAll(dangling, TestGraphs.skewedTeleport(RECIPES));
+    }
+
+    @Test
+    public void hittingTheIterationCapIsNotConvergence() {
+        for (PageRankConfig.Solver solver : SOLVERS) {
+            int needed = run(linked, config(solver), null).getIterations();
+            for (int cap = 1; cap < needed; cap++) {
+                PageRankResult result = run(linked, config(solver).setMaxIterations(cap), null);
+                assertFalse(solver + " capped at " + cap, result.isConverged());
+                assertEquals(solver + " capped at " + cap, cap, result.getIterations());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jacobiIsNotAnAcceleratedSolver() {
+        run(linked, config(PageRankConfig.Solver.JACOBI), null);
+    }
+
+    private void checkAll(LinkGraph graph, double[] teleport) {
+        //power iteration run far past the tolerance the solvers are held to
+        PageRankConfig exact = new PageRankConfig().setTolerance(1e-13).setMaxIterations(10000);
+        double[] expected = new PageRankEngine(graph, exact).run(uniform(graph), teleport).getRanks();
+        for (PageRankConfig.Solver solver : SOLVERS) {
+            PageRankResult result = run(graph, config(solver), teleport);
+            assertTrue(solver.toString(), result.isConverged());
+            double distance = TestGraphs.l1(expected, result.getRanks());
+            assertTrue(solver + " L1 distance " + distance, distance < TOLERANCE);
+            assertEquals(solver.toString(), 1, Arrays.stream(result.getRanks()).sum(), 1e-9);
+        }
+    }
+
+    private static PageRankConfig config(PageRankConfig.Solver solver) {
+        return new PageRankConfig().setSolver(solver).setTolerance(TOLERANCE);
+    }
+
+    private static PageRankResult run(LinkGraph graph, PageRankConfig config, double[] teleport) {
+        return new AcceleratedPageRankEngine(graph, config).run(uniform(graph), teleport);
+    }
+
+    private static double[] uniform(LinkGraph graph) {
+        double[] ranks = new double[graph.getNodeCount()];
+        Arrays.fill(ranks, 1 / (double) ranks.length);
+        return ranks;
+    }
+}
@@ -0,0 +1,144 @@
+import com.sun.net.httpserver.HttpServer;
+import org.jsoup.nodes.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Crawls a handful of fixture pages served on localhost by a com.sun.net.httpserver stand-in for the site,
+ * fetched with JsoupPageFetcher, and checks the graph and csv files the crawler builds from them.
+ **/
+public class CrawlerTest {
+    @Rule
+    public TemporaryFolder output = new TemporaryFolder();
+
+    private HttpServer site;
+    private String base; // http://127.0.0.1:<port>
+
+    @Before
+    public void startSite() throws IOException {
+        Map<String, String> pages = new HashMap<>();
+        pages.put("/", page("Home", "", "/recipe/a", "/topic/pies"));
+        pages.put("/topic/pies", page("Pies", "", "/recipe/b", "/recipe/c?utm_source=topic"));
+        pages.put("/recipe/a", page("A", details(90, 12), "/recipe/b", "/recipe/crash"));
+        pages.put("/recipe/b", page("B", details(80, 3), "/recipe/a/"));
+        pages.put("/recipe/c", page("C", details(70, 1), "/recipe/a#tips", "https://elsewhere.example/recipe/x"));
+        pages.put("/recipe/crash", page("Crash", details(50, 1), "/recipe/never-linked-elsewhere"));
+
+        site = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        site.createContext("/", exchange -> {
+            String html = pages.get(exchange.getRequestURI().getPath());
+            byte[] body = (html == null ? "not found" : html).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(html == null ? 404 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        site.start();
+        base = "http://127.0.0.1:" + site.getAddress().getPort();
+    }
+
+    @After
+    public void stopSite() {
+        site.stop(0);
+    }
+
+    @Test
+    public void crawlBuildsTheRecipeGraphAndSurvivesAFailingPage() throws IOException {
+        // one worker, so a page error that ended the worker would end the whole crawl
+        Crawler crawler = new Crawler(base + "/", 1, 0, () -> new FailingFetcher(base + "/recipe/crash"));
+        crawler.setOutputDirectory(output.getRoot());
+        crawler.crawl();
+
+        Set<String> expected = new HashSet<>();
+        expected.add(edge("/", "/recipe/a"));
+        expected.add(edge("/topic/pies", "/recipe/b"));
+        expected.add(edge("/topic/pies", "/recipe/c"));
+        expected.add(edge("/recipe/a", "/recipe/b"));
+        expected.add(edge("/recipe/a", "/recipe/crash"));
+        expected.add(edge("/recipe/b", "/recipe/a"));
+        expected.add(edge("/recipe/c", "/recipe/a"));
+        assertEquals(expected, edges(crawler.getGraph()));
+
+        // a, b and c were recorded, the page that blew up wasn't, and the error was counted
+        List<String> details = Files.readAllLines(new File(output.getRoot(), "details.csv").toPath());
+        assertEquals(4, details.size());
+        assertEquals(1, crawler.getMetrics().getErrors("IllegalStateException"));
+        assertEquals(5, crawler.getMetrics().getPages());
+
+        // the csv export holds the same graph as the in-memory one
+        LinkGraph fromCsv = LinkGraph.fromCsv(new File(output.getRoot(), "inlinks.csv"),
+                new File(output.getRoot(), "outlinks.csv"));
+        assertEquals(expected, edges(fromCsv));
+        assertTrue(new File(output.getRoot(), "crawl-metrics.json").exists());
+    }
+
+    private String edge(String fromPath, String toPath) {
+        return UrlCanonicalizer.canonicalize(base + fromPath) + " -> " + UrlCanonicalizer.canonicalize(base + toPath);
+    }
+
+    private static Set<String> edges(LinkGraph graph) {
+        Set<String> edges = new HashSet<>();
+        int[] offsets = graph.getOutOffsets();
+        int[] targets = graph.getOutTargets();
+        for (int n = 0; n < graph.getNodeCount(); n++) {
+            for (int e = offsets[n]; e < offsets[n + 1]; e++) {
+                edges.add(graph.getUrl(n) + " -> " + graph.getUrl(targets[e]));
+            }
+        }
+        return edges;
+    }
+
+    private static String page(String title, String body, String... links) {
+        StringBuilder html = new StringBuilder("<html><head><title>").append(title).append("</title></head><body>");
+        html.append(body);
+        for (String link : links) {
+            html.append("<a href=\"").append(link).append("\">").append(link).append("</a>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    // the two headings Crawler reads a recipe's details from
+    private static String details(int wouldMakeAgain, int tips) {
+        return "<h3 class=\"tips-score-heading\">" + wouldMakeAgain + "% would make again</h3>"
+                + "<h3 class=\"tips-count-heading\">" + tips + " tips</h3>";
+    }
+
+    /**
+     * JsoupPageFetcher that throws a RuntimeException for one url, like a crashed Chrome renderer would.
+     **/
+    private static class FailingFetcher extends JsoupPageFetcher {
+        private final String failingUrl;
+
+        FailingFetcher(String failingUrl) {
+            this.failingUrl = UrlCanonicalizer.canonicalize(failingUrl);
+        }
+
+        @Override
+        public Document fetch(String url) throws IOException {
+            if (url.equals(failingUrl)) {
+                throw new IllegalStateException("renderer crashed");
+            }
+            return super.fetch(url);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Reranks a perturbed copy of a random power-law graph with IncrementalPageRank, warm-started from the ranks
+ * of the original graph, and compares the result and the work it took against a cold PageRankEngine run.
+ * */
+public class IncrementalPageRankTest {
+    private static final int RECIPES = 5000;
+    private static final int LINKS_PER_RECIPE = 5;
+
+    private final PageRankConfig config = new PageRankConfig();
+
+    @Test
+    public void smallRecrawlMatchesAColdRunWithLessWork() {
+        check(0.0005, false);
+    }
+
+    @Test
+    public void largeRecrawlFallsBackAndStillMatchesAColdRun() {
+        check(0.05, true);
+    }
+
+    @Test
+    public void newRecipesStartFromTheUniformRank() {
+        LinkGraph previous = graph(powerLawEdges(new Random(1)));
+        double[] previousRanks = new PageRankEngine(previous, config).run().getRanks();
+        EdgeDelta delta = new EdgeDelta()
+                .addRecipe(url(RECIPES))
+                .addEdge(url(RECIPES), url(0))
+                .addEdge(url(3), url(RECIPES));
+        LinkGraph current = delta.applyTo(previous);
+
+        double[] warm = RankVector.of(previous, previousRanks).alignTo(current.getDictionary(), Double.NaN);
+        IncrementalPageRank incremental = new IncrementalPageRank(current, config);
+        PageRankResult result = incremental.update(warm, delta.affectedNodes(current));
+
+        assertTrue(result.isConverged());
+        assertClose(new PageRankEngine(current, config).run().getRanks(), result.getRanks());
+    }
+
+    //change share of the links, rerank incrementally and compare with a cold run
+    private void check(double share, boolean expectFallBack) {
+        Random random = new Random(7);
+        List<long[]> edges = powerLawEdges(random);
+        LinkGraph previous = graph(edges);
+        double[] previousRanks = new PageRankEngine(previous, config).run().getRanks();
+
+        int changes = Math.max(1, (int) (share * edges.size()));
+        for (int c = 0; c < changes; c++) {
+            edges.set(random.nextInt(edges.size()), new long[]{random.nextInt(RECIPES), random.nextInt(RECIPES)});
+        }
+        LinkGraph current = graph(edges);
+        EdgeDelta delta = EdgeDelta.between(previous, current);
+
+        IncrementalPageRank incremental = new IncrementalPageRank(current, config);
+        PageRankResult result = incremental.update(
+                RankVector.of(previous, previousRanks).alignTo(current.getDictionary(), Double.NaN),
+                delta.affectedNodes(current));
+        PageRankResult cold = new PageRankEngine(current, config).run();
+
+        assertTrue(result.isConverged());
+        assertClose(cold.getRanks(), result.getRanks());
+        assertEquals(expectFallBack, incremental.fellBack());
+        //never more single-node recomputations than the cold run did
+        long coldUpdates = (long) cold.getIterations() * RECIPES;
+        assertTrue(incremental.getNodeUpdates() + " node updates vs " + coldUpdates + " for a cold run",
+                incremental.getNodeUpdates() < coldUpdates);
+        if (!expectFallBack) {
+            assertTrue(incremental.getNodeUpdates() < coldUpdates / 2);
+        }
+    }
+
+    //both vectors sum to 1 and are within a few tolerances of each other in L1
+    private void assertClose(double[] expected, double[] actual) {
+        assertEquals(expected.length, actual.length);
+        double error = 0, sum = 0;
+        for (int i = 0; i < expected.length; i++) {
+            error += Math.abs(expected[i] - actual[i]);
+            sum += actual[i];
+        }
+        assertTrue("L1 error " + error, error < 5 * config.getTolerance());
+        assertTrue("sum " + sum, Math.abs(sum - 1) < 1e-9);
+    }
+
+    private static List<long[]> powerLawEdges(Random random) {
+        return TestGraphs.powerLawEdges(random, RECIPES, LINKS_PER_RECIPE);
+    }
+
+    private static LinkGraph graph(List<long[]> edges) {
+        return TestGraphs.graph(RECIPES, edges);
+    }
+
+    private static String url(int recipe) {
+        return TestGraphs.url(recipe);
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Runs the fork-join engine and the sequential PageRankEngine on the same graphs and checks they agree:
+ * same iteration count and ranks within the tolerance of each other.
+ * */
+public class ParallelPageRankEngineTest {
+    private static final int THREADS = 4;
+
+    private final PageRankConfig sequential = new PageRankConfig();
+    private final PageRankConfig parallel = new PageRankConfig().setParallelism(THREADS);
+
+    @Test
+    public void matchesSequentialOnAPowerLawGraph() {
+        check(TestGraphs.powerLaw(3, 20000, 20000, 5), null);
+    }
+
+    @Test
+    public void matchesSequentialWithATeleportVector() {
+        check(TestGraphs.powerLaw(4, 20000, 20000, 5), TestGraphs.skewedTeleport(20000));
+    }
+
+    @Test
+    public void matchesSequentialWhenMostRecipesAreDangling() {
+        //only one recipe in ten links anywhere, so most of the rank comes back through the dangling mass
+        check(TestGraphs.powerLaw(5, 20000, 2000, 5), null);
+    }
+
+    @Test
+    public void handlesMoreThreadsThanRecipes() {
+        check(TestGraphs.powerLaw(6, 3, 3, 1), null);
+    }
+
+    @Test
+    public void rankingAnEmptyGraphConvergesToNothing() {
+        LinkGraph empty = TestGraphs.graph(0, new ArrayList<>());
+        PageRankResult result = new ParallelPageRankEngine(empty, parallel).run(new double[0], null);
+        assertEquals(0, result.getRanks().length);
+        assertTrue(result.isConverged());
+        assertEquals(new PageRankEngine(empty, sequential).run().getIterations(), result.getIterations());
+    }
+
+    private void check(LinkGraph graph, double[] teleport) {
+        double[] initial = new double[graph.getNodeCount()];
+        Arrays.fill(initial, 1 / (double) initial.length);
+        PageRankResult expected = new PageRankEngine(graph, sequential).run(initial, teleport);
+        PageRankResult actual = new ParallelPageRankEngine(graph, parallel).run(initial, teleport);
+
+        assertTrue(actual.isConverged());
+        assertEquals(expected.getIterations(), actual.getIterations());
+        double distance = TestGraphs.l1(expected.getRanks(), actual.getRanks());
+        assertTrue("L1 distance " + distance, distance < sequential.getTolerance());
+        double sum = Arrays.stream(actual.getRanks()).sum();
+        assertEquals(1, sum, 1e-9);
+    }
+}
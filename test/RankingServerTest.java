@@ -0,0 +1,137 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+ * Starts a RankingServer on a free loopback port over a few csv rows in a temporary folder and queries it
+ * over HTTP, including a reload that fails because a crawl file is missing.
+ * */
+public class RankingServerTest {
+    private static final String A = "https://tasty.co/recipe/a";
+    private static final String B = "https://tasty.co/recipe/b";
+    private static final String C = "https://tasty.co/recipe/c";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File inlinks, outlinks;
+    private RankingServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        //a is linked from the home page, b and c; b from the home page and a; c from nothing
+        inlinks = write("inlinks.csv", "Recipe URL,Inlink URL",
+                A + ",https://tasty.co", A + "," + B, A + "," + C, B + ",https://tasty.co", B + "," + A);
+        outlinks = write("outlinks.csv", "Recipe URL,Outlink URL",
+                "https://tasty.co," + A, "https://tasty.co," + B, A + "," + B, B + "," + A, C + "," + A);
+        File details = write("details.csv", "Recipe Title,Recipe URL,\"Would Make Again\" %,Tips Count",
+                "Recipe A," + A + ",90,12", "Recipe B," + B + ",80,3");
+        server = new RankingServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), inlinks, outlinks,
+                details, new PageRankConfig());
+        server.reload().join();
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void answersQueriesFromTheRankedCrawl() throws IOException {
+        String top = get("/top?n=2");
+        assertTrue(top, top.startsWith("{\"version\": 1, \"results\": [\n  {\"url\": \"" + A + "\""));
+        assertTrue(top, top.contains("\"title\": \"Recipe A\", \"wouldMakeAgain\": 90, \"tips\": 12"));
+        assertTrue(top, top.contains("\"url\": \"" + B + "\""));
+
+        String rank = get("/rank?url=" + URLEncoder.encode(C, StandardCharsets.UTF_8));
+        assertTrue(rank, rank.contains("\"url\": \"" + C + "\""));
+        assertTrue(rank, rank.contains("\"inlinks\": 0"));
+
+        String status = get("/status");
+        assertTrue(status, status.contains("\"recipes\": 4, \"links\": 5"));
+        assertTrue(status, status.endsWith("\"lastFailure\": null}"));
+
+        assertEquals(404, status("GET", "/rank?url=" + URLEncoder.encode(A + "-nope", StandardCharsets.UTF_8)));
+        assertEquals(400, status("GET", "/top?n=0"));
+        assertEquals(405, status("GET", "/reload"));
+    }
+
+    @Test
+    public void failedReloadKeepsServingAndShowsInStatus() throws IOException {
+        File moved = new File(folder.getRoot(), "outlinks.moved");
+        Files.move(outlinks.toPath(), moved.toPath());
+        assertEquals(202, status("POST", "/reload"));
+        try {
+            server.reload().join(); //the one just posted, or one queued right behind it
+            fail("reload should fail without outlinks.csv");
+        } catch (CompletionException expected) {
+            //reported in /status
+        }
+        String status = get("/status");
+        assertTrue(status, status.startsWith("{\"version\": 1,"));
+        assertTrue(status, status.contains("\"lastFailure\": {\"message\": \"Couldn't load the crawl files"));
+        assertTrue(get("/top?n=1").contains(A));
+
+        //a reload that works clears the failure
+        Files.move(moved.toPath(), outlinks.toPath());
+        server.reload().join();
+        status = get("/status");
+        assertTrue(status, status.startsWith("{\"version\": 2,"));
+        assertTrue(status, status.endsWith("\"lastFailure\": null}"));
+    }
+
+    private File write(String name, String... lines) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), String.join("\n", lines).concat("\n").getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    //body of a GET that must answer 200
+    private String get(String path) throws IOException {
+        HttpURLConnection connection = open("GET", path);
+        try {
+            assertEquals(path, 200, connection.getResponseCode());
+            try (InputStream in = connection.getInputStream()) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private int status(String method, String path) throws IOException {
+        HttpURLConnection connection = open(method, path);
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(String method, String path) throws IOException {
+        InetSocketAddress address = server.getAddress();
+        URL url = new URL("http://" + address.getHostString() + ":" + address.getPort() + path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        return connection;
+    }
+}
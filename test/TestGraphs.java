@@ -0,0 +1,81 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/*
+ * Random link graphs for the PageRank tests, shaped like a crawl: a few recipes collect most of the inlinks.
+ * */
+final class TestGraphs {
+
+    private TestGraphs() {
+    }
+
+    //preferential attachment: most links go to recipes that are already linked to, some to random ones;
+    //only recipes below linkingRecipes have outlinks, the rest are dangling
+    static List<long[]> powerLawEdges(Random random, int recipes, int linkingRecipes, int linksPerRecipe) {
+        List<long[]> edges = new ArrayList<>();
+        List<Integer> targets = new ArrayList<>();
+        for (int from = 0; from < linkingRecipes; from++) {
+            for (int l = 0; l < linksPerRecipe; l++) {
+                int to = targets.isEmpty() || random.nextDouble() < 0.3
+                        ? random.nextInt(recipes)
+                        : targets.get(random.nextInt(targets.size()));
+                edges.add(new long[]{from, to});
+                targets.add(to);
+            }
+        }
+        return edges;
+    }
+
+    static List<long[]> powerLawEdges(Random random, int recipes, int linksPerRecipe) {
+        return powerLawEdges(random, recipes, recipes, linksPerRecipe);
+    }
+
+    static LinkGraph powerLaw(long seed, int recipes, int linkingRecipes, int linksPerRecipe) {
+        return graph(recipes, powerLawEdges(new Random(seed), recipes, linkingRecipes, linksPerRecipe));
+    }
+
+    //graph over recipes 0..recipes-1 with the given edges, dropping self links and repeats
+    static LinkGraph graph(int recipes, List<long[]> edges) {
+        UrlDictionary dictionary = new UrlDictionary();
+        for (int r = 0; r < recipes; r++) {
+            dictionary.intern(url(r));
+        }
+        GraphBuilder builder = new GraphBuilder();
+        Set<Long> seen = new HashSet<>();
+        for (long[] edge : edges) {
+            if (edge[0] != edge[1] && seen.add(edge[0] << 32 | edge[1])) {
+                builder.addEdge((int) edge[0], (int) edge[1]);
+            }
+        }
+        return builder.build(dictionary);
+    }
+
+    //a teleport vector that favours every seventh recipe, summing to 1
+    static double[] skewedTeleport(int recipes) {
+        double[] teleport = new double[recipes];
+        double sum = 0;
+        for (int r = 0; r < recipes; r++) {
+            teleport[r] = r % 7 == 0 ? 5 : 1;
+            sum += teleport[r];
+        }
+        for (int r = 0; r < recipes; r++) {
+            teleport[r] /= sum;
+        }
+        return teleport;
+    }
+
+    static double l1(double[] a, double[] b) {
+        double distance = 0;
+        for (int i = 0; i < a.length; i++) {
+            distance += Math.abs(a[i] - b[i]);
+        }
+        return distance;
+    }
+
+    static String url(int recipe) {
+        return "https://tasty.co/recipe/r" + recipe;
+    }
+}
@@ -0,0 +1,104 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/*
+ * Compares TopK against a full sort of the node ids by score, best first with ties to the lower id, on arrays
+ * with many repeated scores, and checks the edge cases: k of 0, k past the end, sub-ranges, merging the results
+ * of separate partitions and the fork-join selection.
+ * */
+public class TopKTest {
+    @Test
+    public void emptyWhenKIsZeroOrNegative() {
+        double[] scores = {0.3, 0.1, 0.2};
+        assertEquals(0, TopK.select(scores, 0).size());
+        assertEquals(0, TopK.select(scores, -1).size());
+        assertEquals(0, TopK.select(new double[0], 5).size());
+        assertEquals(0, TopK.select(scores, 2, 2, 1).size());
+    }
+
+    @Test
+    public void kPastTheEndReturnsEveryNodeSorted() {
+        double[] scores = {0.3, 0.1, 0.4, 0.2};
+        RankedList top = TopK.select(scores, 10);
+        assertArrayEquals(new int[]{2, 0, 3, 1}, top.getNodes());
+        assertArrayEquals(new double[]{0.4, 0.3, 0.2, 0.1}, top.getScores(), 0);
+    }
+
+    @Test
+    public void tiesGoToTheLowerNode() {
+        double[] scores = {0.1, 0.5, 0.2, 0.5, 0.2, 0.5};
+        assertArrayEquals(new int[]{1, 3, 5, 2}, TopK.select(scores, 4).getNodes());
+        assertArrayEquals(new int[]{1, 3}, TopK.select(scores, 2).getNodes());
+        double[] flat = new double[100];
+        Arrays.fill(flat, 0.01);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, TopK.select(flat, 5).getNodes());
+    }
+
+    @Test
+    public void matchesAFullSort() {
+        Random random = new Random(11);
+        for (int n : new int[]{1, 7, 100, 5000}) {
+            double[] scores = scores(random, n);
+            for (int k : new int[]{1, 3, 50, n}) {
+                assertTop(scores, 0, n, k, TopK.select(scores, k));
+            }
+        }
+    }
+
+    @Test
+    public void rangesKeepTheirNodeIds() {
+        double[] scores = scores(new Random(12), 1000);
+        assertTop(scores, 200, 700, 25, TopK.select(scores, 200, 700, 25));
+        assertTop(scores, 990, 1000, 25, TopK.select(scores, 990, 1000, 25));
+    }
+
+    @Test
+    public void mergingPartitionsMatchesSelectingTheWhole() {
+        double[] scores = scores(new Random(13), 3000);
+        for (int k : new int[]{1, 40, 1000, 4000}) {
+            RankedList merged = TopK.select(scores, 0, 0, k);
+            for (int from = 0; from < scores.length; from += 700) {
+                RankedList part = TopK.select(scores, from, Math.min(from + 700, scores.length), k);
+                merged = TopK.merge(merged, part, k);
+            }
+            RankedList whole = TopK.select(scores, k);
+            assertArrayEquals(whole.getNodes(), merged.getNodes());
+            assertArrayEquals(whole.getScores(), merged.getScores(), 0);
+        }
+    }
+
+    @Test
+    public void parallelSelectionMatchesSequential() {
+        double[] scores = scores(new Random(14), 300_000);
+        for (int k : new int[]{1, 100, 70_000}) {
+            RankedList parallel = TopK.selectParallel(scores, k, 4);
+            assertTop(scores, 0, scores.length, k, parallel);
+        }
+    }
+
+    //scores drawn from a few hundred values so there are plenty of ties
+    private static double[] scores(Random random, int n) {
+        double[] scores = new double[n];
+        for (int i = 0; i < n; i++) {
+            scores[i] = random.nextInt(300) / 300.0;
+        }
+        return scores;
+    }
+
+    private static void assertTop(double[] scores, int from, int to, int k, RankedList top) {
+        int[] sorted = IntStream.range(from, to).boxed()
+                .sorted(Comparator.comparingDouble((Integer n) -> -scores[n]).thenComparingInt(n -> n))
+                .mapToInt(Integer::intValue).limit(k).toArray();
+        assertArrayEquals(sorted, top.getNodes());
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(scores[top.getNode(i)], top.getScore(i), 0);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Table of urls and the canonical form UrlCanonicalizer gives them; two urls that should be the same node
+ * must come out equal, and a url that is already canonical must come back as the same string.
+ **/
+public class UrlCanonicalizerTest {
+    private static final String[][] CANONICAL = {
+            // default ports
+            {"https://tasty.co:443/recipe/a", "https://tasty.co/recipe/a"},
+            {"http://tasty.co:80/recipe/a", "http://tasty.co/recipe/a"},
+            {"https://tasty.co:8443/recipe/a", "https://tasty.co:8443/recipe/a"},
+            {"http://tasty.co:443/recipe/a", "http://tasty.co:443/recipe/a"}, // only https defaults to 443
+            {"https://tasty.co:4443/recipe/a", "https://tasty.co:4443/recipe/a"},
+            // scheme and host are lower cased, the path isn't
+            {"HTTPS://Tasty.CO/recipe/a", "https://tasty.co/recipe/a"},
+            {"https://tasty.co/Recipe/A", "https://tasty.co/Recipe/A"},
+            // the root page
+            {"https://tasty.co", "https://tasty.co/"},
+            {"https://tasty.co/", "https://tasty.co/"},
+            {"https://tasty.co//", "https://tasty.co/"},
+            {"https://Tasty.co:443", "https://tasty.co/"},
+            {"https://tasty.co?ref=nav", "https://tasty.co/"},
+            {"https://tasty.co/#top", "https://tasty.co/"},
+            // trailing slashes
+            {"https://tasty.co/recipe/a/", "https://tasty.co/recipe/a"},
+            {"https://tasty.co/recipe/a///", "https://tasty.co/recipe/a"},
+            {"https://tasty.co/topic//pies", "https://tasty.co/topic//pies"},
+            // queries and fragments
+            {"https://tasty.co/recipe/a?utm_source=topic", "https://tasty.co/recipe/a"},
+            {"https://tasty.co/recipe/a#tips", "https://tasty.co/recipe/a"},
+            {"https://tasty.co/recipe/a/?utm=1#tips", "https://tasty.co/recipe/a"},
+            {"https://tasty.co/recipe/a#tips?not=query", "https://tasty.co/recipe/a"},
+            {"https://Tasty.co/recipe/x/?utm=1#tips", "https://tasty.co/recipe/x"},
+    };
+
+    private static final String[] NOT_HTTP = {
+            null,
+            "",
+            "ftp://tasty.co/recipe/a",
+            "mailto:someone@tasty.co",
+            "javascript:void(0)",
+            "//tasty.co/recipe/a",
+            "/recipe/a",
+            "https://",
+            "https:///recipe/a",
+            "httpx://tasty.co/recipe/a",
+    };
+
+    @Test
+    public void canonicalizesTheTable() {
+        for (String[] row : CANONICAL) {
+            assertEquals(row[0], row[1], UrlCanonicalizer.canonicalize(row[0]));
+            // canonical forms are fixed points
+            assertEquals(row[1], row[1], UrlCanonicalizer.canonicalize(row[1]));
+        }
+    }
+
+    @Test
+    public void rejectsAnythingButAbsoluteHttpUrls() {
+        for (String url : NOT_HTTP) {
+            assertNull(url, UrlCanonicalizer.canonicalize(url));
+        }
+        assertEquals("/recipe/a", UrlCanonicalizer.canonicalOrSelf("/recipe/a"));
+        assertEquals("https://tasty.co/recipe/a", UrlCanonicalizer.canonicalOrSelf("https://tasty.co/recipe/a/"));
+    }
+
+    @Test
+    public void canonicalUrlsComeBackAsTheSameString() {
+        for (String url : new String[]{"https://tasty.co/recipe/a", "http://tasty.co/", "https://tasty.co:8443/x"}) {
+            assertSame(url, UrlCanonicalizer.canonicalize(url));
+        }
+        for (String[] row : CANONICAL) {
+            if (row[0].equals(row[1])) {
+                assertSame(row[0], UrlCanonicalizer.canonicalize(row[0]));
+            }
+        }
+    }
+}